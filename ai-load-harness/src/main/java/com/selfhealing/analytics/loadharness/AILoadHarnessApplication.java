@@ -0,0 +1,11 @@
+package com.selfhealing.analytics.loadharness;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class AILoadHarnessApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(AILoadHarnessApplication.class, args);
+    }
+}
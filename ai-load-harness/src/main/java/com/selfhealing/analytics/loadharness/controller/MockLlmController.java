@@ -0,0 +1,176 @@
+package com.selfhealing.analytics.loadharness.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.selfhealing.analytics.loadharness.service.MockAnswerGenerator;
+import com.selfhealing.analytics.loadharness.service.MockLlmBehavior;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stand-in for the OpenAI chat completions and Anthropic messages APIs,
+ * including their streaming (server-sent events) variants. Select it by
+ * setting the provider base-url to {@code http://<host>:8090/v1}.
+ * Latency and failures follow {@link MockLlmBehavior}; delays are
+ * non-blocking, so one instance can hold many concurrent requests.
+ */
+@RestController
+@RequestMapping("/v1")
+@Profile("mock-llm")
+@RequiredArgsConstructor
+@Slf4j
+public class MockLlmController {
+    
+    private final MockLlmBehavior behavior;
+    private final MockAnswerGenerator answerGenerator;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${mock-llm.stream-chunk-size:12}")
+    private int streamChunkSize;
+    
+    @PostMapping("/chat/completions")
+    public Mono<ResponseEntity<Flux<String>>> chatCompletions(@RequestBody JsonNode request) {
+        String prompt = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                prompt = message.path("content").asText();
+            }
+        }
+        String model = request.path("model").asText("mock");
+        String answer = answerGenerator.answer(prompt);
+        int promptTokens = prompt.length() / 4;
+        
+        if (request.path("stream").asBoolean(false)) {
+            String id = "chatcmpl-" + UUID.randomUUID();
+            List<String> events = new ArrayList<>();
+            for (String piece : chunks(answer)) {
+                ObjectNode event = objectMapper.createObjectNode();
+                event.put("id", id);
+                event.put("object", "chat.completion.chunk");
+                event.put("model", model);
+                event.putArray("choices").addObject().put("index", 0).putObject("delta").put("content", piece);
+                events.add(event.toString());
+            }
+            events.add("[DONE]");
+            return respond(events, true);
+        }
+        
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "chatcmpl-" + UUID.randomUUID());
+        response.put("object", "chat.completion");
+        response.put("model", model);
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", answer);
+        choice.put("finish_reason", "stop");
+        response.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", answer.length() / 4)
+                .put("total_tokens", promptTokens + answer.length() / 4);
+        return respond(List.of(response.toString()), false);
+    }
+    
+    @PostMapping("/messages")
+    public Mono<ResponseEntity<Flux<String>>> messages(@RequestBody JsonNode request) {
+        String prompt = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                prompt = message.path("content").asText();
+            }
+        }
+        String model = request.path("model").asText("mock");
+        String answer = answerGenerator.answer(prompt);
+        String id = "msg_mock_" + UUID.randomUUID().toString().replace("-", "");
+        
+        if (request.path("stream").asBoolean(false)) {
+            List<String> events = new ArrayList<>();
+            ObjectNode start = objectMapper.createObjectNode().put("type", "message_start");
+            start.putObject("message").put("id", id).put("type", "message").put("role", "assistant").put("model", model);
+            events.add(start.toString());
+            events.add("{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"text\",\"text\":\"\"}}");
+            for (String piece : chunks(answer)) {
+                ObjectNode delta = objectMapper.createObjectNode().put("type", "content_block_delta").put("index", 0);
+                delta.putObject("delta").put("type", "text_delta").put("text", piece);
+                events.add(delta.toString());
+            }
+            events.add("{\"type\":\"content_block_stop\",\"index\":0}");
+            events.add("{\"type\":\"message_stop\"}");
+            return respond(events, true);
+        }
+        
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", id);
+        response.put("type", "message");
+        response.put("role", "assistant");
+        response.put("model", model);
+        response.putArray("content").addObject().put("type", "text").put("text", answer);
+        response.put("stop_reason", "end_turn");
+        response.putObject("usage")
+                .put("input_tokens", prompt.length() / 4)
+                .put("output_tokens", answer.length() / 4);
+        return respond(List.of(response.toString()), false);
+    }
+    
+    private Mono<ResponseEntity<Flux<String>>> respond(List<String> payloads, boolean stream) {
+        long latency = behavior.sampleLatencyMillis();
+        switch (behavior.sampleOutcome()) {
+            case THROTTLED:
+                return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header("Retry-After", String.valueOf(behavior.getRetryAfterSeconds()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(Flux.just(error("rate_limit_error", "Mock rate limit exceeded"))));
+            case ERROR:
+                return Mono.delay(Duration.ofMillis(latency))
+                        .map(t -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(Flux.just(error("api_error", "Mock internal error"))));
+            default:
+                break;
+        }
+        
+        if (!stream) {
+            return Mono.delay(Duration.ofMillis(latency))
+                    .map(t -> ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(Flux.fromIterable(payloads)));
+        }
+        
+        // Time to first token, then the rest of the latency spread over the chunks
+        long firstToken = (long) (latency * behavior.getFirstTokenFraction());
+        long perChunk = Math.max(0, (latency - firstToken) / Math.max(1, payloads.size()));
+        Flux<String> events = Flux.fromIterable(payloads)
+                .delayElements(Duration.ofMillis(perChunk))
+                .delaySubscription(Duration.ofMillis(firstToken));
+        return Mono.just(ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(events));
+    }
+    
+    private List<String> chunks(String text) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += streamChunkSize) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + streamChunkSize)));
+        }
+        return chunks;
+    }
+    
+    private String error(String type, String message) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("error").put("type", type).put("message", message);
+        return body.toString();
+    }
+}
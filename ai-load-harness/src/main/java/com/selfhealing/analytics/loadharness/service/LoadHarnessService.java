@@ -0,0 +1,158 @@
+package com.selfhealing.analytics.loadharness.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.common.model.CheckStatus;
+import com.selfhealing.analytics.common.model.CheckType;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a synthetic stream of failed data quality checks to
+ * data-quality-checks and watches the incidents topic. Every
+ * {@code report-interval} it logs incidents per second and latency
+ * percentiles, measured from the last check of an incident to its arrival:
+ * time to first alert (provisional or complete, whichever comes first) and
+ * time to the complete analysis. Each incident id is counted once.
+ */
+@Service
+@Profile("load-harness")
+@RequiredArgsConstructor
+@Slf4j
+public class LoadHarnessService {
+
+    private static final CheckType[] CHECK_TYPES = {
+            CheckType.ROW_COUNT_ANOMALY, CheckType.NULL_RATE, CheckType.TYPE_MISMATCH, CheckType.SCHEMA_DRIFT
+    };
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${load-harness.checks-per-second:30}")
+    private int checksPerSecond;
+
+    @Value("${load-harness.duration:PT2M}")
+    private Duration duration;
+
+    @Value("${load-harness.tables:50}")
+    private int tables;
+
+    @Value("${load-harness.report-interval:PT10S}")
+    private Duration reportInterval;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final AtomicLong checksSent = new AtomicLong();
+    private final Set<String> seenIncidents = ConcurrentHashMap.newKeySet();
+    private final Set<String> completedIncidents = ConcurrentHashMap.newKeySet();
+    private final List<Long> firstAlertLatencies = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> completeLatencies = Collections.synchronizedList(new ArrayList<>());
+    private volatile long startedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        startedAt = System.nanoTime();
+        long periodMicros = 1_000_000L / Math.max(1, checksPerSecond);
+        var producer = scheduler.scheduleAtFixedRate(this::sendCheck, 0, periodMicros, TimeUnit.MICROSECONDS);
+        scheduler.schedule(() -> {
+            producer.cancel(false);
+            log.info("Stopped sending after {} checks; still collecting incidents", checksSent.get());
+        }, duration.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::report, reportInterval.toMillis(), reportInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Load harness started: {} checks/s over {} tables for {}", checksPerSecond, tables, duration);
+    }
+
+    private void sendCheck() {
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String tableName = "load_table_" + random.nextInt(tables);
+
+            DataQualityCheck check = new DataQualityCheck();
+            check.setCheckId(UUID.randomUUID().toString());
+            check.setTableName(tableName);
+            check.setCheckType(CHECK_TYPES[random.nextInt(CHECK_TYPES.length)]);
+            check.setStatus(CheckStatus.FAILED);
+            check.setTimestamp(Instant.now());
+            check.setThreshold(20.0);
+            check.setActualValue(20 + random.nextDouble() * 60);
+            Map<String, Object> details = new HashMap<>();
+            details.put("column_name", "column_" + random.nextInt(5));
+            details.put("emission_reason", "LOAD_TEST");
+            check.setDetails(details);
+
+            // Same envelope as the data quality service: a JSON array keyed by table
+            kafkaTemplate.send("data-quality-checks", tableName, objectMapper.writeValueAsString(List.of(check)));
+            checksSent.incrementAndGet();
+        } catch (Exception e) {
+            log.error("Error sending load test check", e);
+        }
+    }
+
+    @KafkaListener(topics = "incidents", groupId = "ai-load-harness-#{T(java.util.UUID).randomUUID()}")
+    public void onIncident(String incidentJson) {
+        try {
+            JsonNode incident = objectMapper.readTree(incidentJson);
+            JsonNode metadata = incident.path("metadata");
+            if (!metadata.hasNonNull("last_check_time")) {
+                return;
+            }
+            long latency = Duration.between(Instant.parse(metadata.get("last_check_time").asText()), Instant.now()).toMillis();
+            String incidentId = incident.path("incident_id").asText();
+
+            if (seenIncidents.add(incidentId)) {
+                firstAlertLatencies.add(latency);
+            }
+            // Incidents without an analysis_state come from engines that do not stream. Lineage folds
+            // re-emit a completed incident under the same id; only its first completion is measured
+            if (!"PROVISIONAL".equals(metadata.path("analysis_state").asText())
+                    && completedIncidents.add(incidentId)) {
+                completeLatencies.add(latency);
+            }
+        } catch (Exception e) {
+            log.error("Error reading incident", e);
+        }
+    }
+
+    private void report() {
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        List<Long> first;
+        List<Long> complete;
+        synchronized (firstAlertLatencies) {
+            first = new ArrayList<>(firstAlertLatencies);
+        }
+        synchronized (completeLatencies) {
+            complete = new ArrayList<>(completeLatencies);
+        }
+        log.info("t={}s checks={} incidents={} ({} /s) | first alert ms p50={} p95={} p99={} | complete ms p50={} p95={} p99={}",
+                Math.round(elapsedSeconds), checksSent.get(), complete.size(),
+                String.format("%.2f", complete.size() / elapsedSeconds),
+                percentile(first, 0.50), percentile(first, 0.95), percentile(first, 0.99),
+                percentile(complete, 0.50), percentile(complete, 0.95), percentile(complete, 0.99));
+    }
+
+    private static long percentile(List<Long> values, double quantile) {
+        if (values.isEmpty()) {
+            return -1;
+        }
+        Collections.sort(values);
+        return values.get((int) Math.ceil(quantile * values.size()) - 1);
+    }
+}
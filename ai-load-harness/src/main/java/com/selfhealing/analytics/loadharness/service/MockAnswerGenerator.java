@@ -0,0 +1,105 @@
+package com.selfhealing.analytics.loadharness.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Produces plausible answers for the prompts the AI ops engine sends, so the
+ * engine's parsing paths (classification, remediation list, structured JSON,
+ * batched JSON) are exercised under load. Answers are derived from the check
+ * types named in the prompt.
+ */
+@Component
+@Profile("mock-llm")
+@RequiredArgsConstructor
+public class MockAnswerGenerator {
+    
+    private static final Pattern CHECK_TYPE = Pattern.compile("Type: ([A-Z_]+)");
+    private static final Pattern BATCH_INCIDENT = Pattern.compile("Incident (\\S+) \\(table ([^)]+)\\)");
+    
+    private final ObjectMapper objectMapper;
+    
+    public String answer(String prompt) {
+        if (prompt.contains("{\"incidents\"")) {
+            return batchAnswer(prompt);
+        }
+        if (prompt.contains("Return a JSON object")) {
+            return analysisJson(classify(prompt)).toString();
+        }
+        if (prompt.contains("Return only the classification")) {
+            return classify(prompt);
+        }
+        if (prompt.contains("numbered list")) {
+            StringBuilder sb = new StringBuilder();
+            List<String> steps = remediations(classify(prompt));
+            for (int i = 0; i < steps.size(); i++) {
+                sb.append(i + 1).append(". ").append(steps.get(i)).append("\n");
+            }
+            return sb.toString();
+        }
+        return rootCause(classify(prompt));
+    }
+    
+    private String batchAnswer(String prompt) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode incidents = root.putArray("incidents");
+        String[] sections = prompt.split("\nIncident ");
+        Matcher matcher = BATCH_INCIDENT.matcher(prompt);
+        int section = 1;
+        while (matcher.find()) {
+            String body = section < sections.length ? sections[section] : "";
+            ObjectNode incident = analysisJson(classify(body));
+            incident.put("id", matcher.group(1));
+            incidents.add(incident);
+            section++;
+        }
+        return root.toString();
+    }
+    
+    private ObjectNode analysisJson(String classification) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("classification", classification);
+        node.put("root_cause", rootCause(classification));
+        ArrayNode steps = node.putArray("remediations");
+        remediations(classification).forEach(steps::add);
+        return node;
+    }
+    
+    private String classify(String text) {
+        Matcher matcher = CHECK_TYPE.matcher(text);
+        String checkType = matcher.find() ? matcher.group(1) : "";
+        switch (checkType) {
+            case "ROW_COUNT_ANOMALY":
+                return "DATA_INGESTION_FAILURE";
+            case "NULL_RATE":
+            case "TYPE_MISMATCH":
+                return "DATA_QUALITY_DEGRADATION";
+            case "SCHEMA_DRIFT":
+                return "SCHEMA_COMPATIBILITY_ISSUE";
+            case "MISSING_PARTITION":
+                return "BATCH_JOB_FAILURE";
+            default:
+                return "UNKNOWN_DATA_ISSUE";
+        }
+    }
+    
+    private String rootCause(String classification) {
+        return "Mock analysis: the failed checks are consistent with " + classification.toLowerCase().replace('_', ' ')
+                + " in an upstream producer or pipeline stage.";
+    }
+    
+    private List<String> remediations(String classification) {
+        return List.of(
+                "Inspect recent deployments of the upstream producer for " + classification,
+                "Compare current row counts and null rates against the previous day",
+                "Replay the affected time window once the source is fixed");
+    }
+}
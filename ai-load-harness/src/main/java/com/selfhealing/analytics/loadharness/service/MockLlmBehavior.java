@@ -0,0 +1,82 @@
+package com.selfhealing.analytics.loadharness.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failure model of the mock provider. Each request draws a total
+ * latency from the configured distribution and an outcome: success, a 500
+ * error with probability {@code error-rate}, or a 429 with probability
+ * {@code throttle-rate}.
+ */
+@Component
+@Profile("mock-llm")
+public class MockLlmBehavior {
+    
+    public enum Outcome {
+        OK,
+        ERROR,
+        THROTTLED
+    }
+    
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+    
+    @Value("${mock-llm.latency.distribution:LOGNORMAL}")
+    private String distribution;
+    
+    @Value("${mock-llm.latency.median-ms:800}")
+    private long medianMs;
+    
+    @Value("${mock-llm.latency.p99-ms:4000}")
+    private long p99Ms;
+    
+    @Value("${mock-llm.latency.first-token-fraction:0.2}")
+    private double firstTokenFraction;
+    
+    @Value("${mock-llm.error-rate:0.0}")
+    private double errorRate;
+    
+    @Value("${mock-llm.throttle-rate:0.0}")
+    private double throttleRate;
+    
+    @Value("${mock-llm.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+    
+    public long sampleLatencyMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (distribution.toUpperCase()) {
+            case "FIXED":
+                return medianMs;
+            case "UNIFORM":
+                return (long) (random.nextDouble() * 2 * medianMs);
+            default:
+                // Lognormal with the configured median and 99th percentile
+                double mu = Math.log(Math.max(medianMs, 1));
+                double sigma = Math.log(Math.max(p99Ms, medianMs + 1) / (double) Math.max(medianMs, 1)) / Z_99;
+                return (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+    
+    public Outcome sampleOutcome() {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        if (draw < throttleRate) {
+            return Outcome.THROTTLED;
+        }
+        if (draw < throttleRate + errorRate) {
+            return Outcome.ERROR;
+        }
+        return Outcome.OK;
+    }
+    
+    public double getFirstTokenFraction() {
+        return firstTokenFraction;
+    }
+    
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
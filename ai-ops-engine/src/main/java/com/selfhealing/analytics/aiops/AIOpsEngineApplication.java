@@ -2,8 +2,10 @@ package com.selfhealing.analytics.aiops;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AIOpsEngineApplication {
     public static void main(String[] args) {
         SpringApplication.run(AIOpsEngineApplication.class, args);
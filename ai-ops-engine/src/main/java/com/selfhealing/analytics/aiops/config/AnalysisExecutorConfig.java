@@ -0,0 +1,40 @@
+package com.selfhealing.analytics.aiops.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Worker pool for incident analysis, so slow AI provider calls never run on
+ * the Kafka listener thread. Admission is bounded by
+ * {@code aiops.analysis.max-in-flight} in {@code AIOpsService}; the queue
+ * only absorbs the gap between a permit being taken and a worker starting.
+ * Provider calls that may be hedged run on a separate pool so an analysis
+ * worker can wait on two providers at once.
+ */
+@Configuration
+public class AnalysisExecutorConfig {
+    
+    @Bean
+    public ThreadPoolTaskExecutor analysisExecutor(@Value("${aiops.analysis.max-in-flight:8}") int maxInFlight) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxInFlight);
+        executor.setMaxPoolSize(maxInFlight);
+        executor.setQueueCapacity(maxInFlight);
+        executor.setThreadNamePrefix("incident-analysis-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+    
+    @Bean
+    public ThreadPoolTaskExecutor providerCallExecutor(@Value("${aiops.analysis.max-in-flight:8}") int maxInFlight) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxInFlight * 2);
+        executor.setMaxPoolSize(maxInFlight * 2);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("ai-provider-call-");
+        return executor;
+    }
+}
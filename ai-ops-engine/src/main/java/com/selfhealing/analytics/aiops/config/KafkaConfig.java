@@ -0,0 +1,21 @@
+package com.selfhealing.analytics.aiops.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Dead-letter topic for failed checks whose incident could not be analyzed
+ * or emitted after every retry (see {@code AIOpsService}).
+ */
+@Configuration
+public class KafkaConfig {
+    
+    public static final String DEAD_LETTER_TOPIC = "data-quality-checks.DLT";
+    
+    @Bean
+    public NewTopic dataQualityChecksDeadLetterTopic() {
+        return TopicBuilder.name(DEAD_LETTER_TOPIC).partitions(1).replicas(1).build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.selfhealing.analytics.aiops.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of analyzing a group of failed checks. Any field may be null when
+ * the provider could not produce it; callers fill gaps from the rule-based
+ * fallback.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentAnalysis {
+    @JsonProperty("classification")
+    private String classification;
+    
+    @JsonProperty("root_cause")
+    private String rootCauseExplanation;
+    
+    @JsonProperty("remediations")
+    private List<String> recommendedRemediations;
+    
+    // Provider that produced the analysis; set by the router
+    @JsonProperty("provider")
+    private String provider;
+    
+    public IncidentAnalysis(String classification, String rootCauseExplanation, List<String> recommendedRemediations) {
+        this(classification, rootCauseExplanation, recommendedRemediations, null);
+    }
+}
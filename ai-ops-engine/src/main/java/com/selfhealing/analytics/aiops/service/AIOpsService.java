@@ -1,57 +1,266 @@
 package com.selfhealing.analytics.aiops.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.aiops.config.KafkaConfig;
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
 import com.selfhealing.analytics.common.model.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+/**
+ * Groups failed data quality checks into incidents and analyzes them off the
+ * listener thread. At most {@code aiops.analysis.max-in-flight} incidents are
+ * analyzed at once; when all permits are taken the listener waits, which
+ * pauses consumption instead of queueing without bound. A record's offset is
+ * acknowledged only once every incident it completed has been sent to Kafka
+ * (async acks let later records commit out of order behind it). A record
+ * whose failed checks were only buffered by the {@link IncidentCorrelator}
+ * is acknowledged at once, so those checks are lost on a restart; see the
+ * correlator for why that is accepted.
+ * <p>
+ * An incident whose analysis or emit fails is retried with backoff; once
+ * {@code aiops.analysis.max-attempts} is used up its checks go to
+ * {@code data-quality-checks.DLT}. If a provisional incident was already
+ * emitted for them, it is first replaced under its id by a FAILED incident
+ * with a rule-based analysis, so the store does not keep it provisional.
+ * The record is acknowledged only after
+ * that send succeeds. If the dead letter cannot be written either, the
+ * record stays unacknowledged and is redelivered after a restart or
+ * rebalance. (The container cannot retry it: nack() is not supported with
+ * async acks.)
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AIOpsService {
     
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
-    private final WebClient.Builder webClientBuilder;
     private final AIServiceProvider aiServiceProvider;
     private final RuleBasedFallbackService fallbackService;
+    private final ThreadPoolTaskExecutor analysisExecutor;
+    private final IncidentCorrelator correlator;
+    private final IncidentBatcher incidentBatcher;
+    private final IncidentSimilarityIndex similarityIndex;
+    private final LineageIncidentMerger lineageMerger;
+    private final Semaphore inFlight;
     
-    private final Map<String, List<DataQualityCheck>> incidentQueue = new HashMap<>();
+    @Value("${aiops.streaming.enabled:true}")
+    private boolean streamingEnabled;
     
-    @KafkaListener(topics = "data-quality-checks", groupId = "ai-ops-engine-group")
-    public void processDataQualityCheck(String checkJson) {
+    @Value("${aiops.analysis.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${aiops.analysis.retry-interval-ms:1000}")
+    private long retryInterval;
+    
+    public AIOpsService(KafkaTemplate<String, String> kafkaTemplate,
+                        ObjectMapper objectMapper,
+                        AIServiceProvider aiServiceProvider,
+                        RuleBasedFallbackService fallbackService,
+                        @Qualifier("analysisExecutor") ThreadPoolTaskExecutor analysisExecutor,
+                        IncidentCorrelator correlator,
+                        IncidentBatcher incidentBatcher,
+                        IncidentSimilarityIndex similarityIndex,
+                        LineageIncidentMerger lineageMerger,
+                        @Value("${aiops.analysis.max-in-flight:8}") int maxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.aiServiceProvider = aiServiceProvider;
+        this.fallbackService = fallbackService;
+        this.analysisExecutor = analysisExecutor;
+        this.correlator = correlator;
+        this.incidentBatcher = incidentBatcher;
+        this.similarityIndex = similarityIndex;
+        this.lineageMerger = lineageMerger;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+    
+    @KafkaListener(topics = "data-quality-checks", groupId = "ai-ops-engine-group",
+                   concurrency = "${aiops.listener.concurrency:1}")
+    public void processDataQualityCheck(String checkJson, Acknowledgment acknowledgment) {
+        List<List<DataQualityCheck>> readyGroups = new ArrayList<>();
         try {
-            DataQualityCheck check = objectMapper.readValue(checkJson, DataQualityCheck.class);
-            
-            if (check.getStatus() == CheckStatus.FAILED) {
-                log.info("Processing failed data quality check: {}", check.getCheckId());
-                
-                // Group related checks
-                String incidentKey = check.getTableName() + "_" + check.getCheckType();
-                incidentQueue.computeIfAbsent(incidentKey, k -> new ArrayList<>()).add(check);
-                
-                // Analyze and create incident
-                if (incidentQueue.get(incidentKey).size() >= 3) { // Threshold for creating incident
-                    Incident incident = analyzeAndCreateIncident(incidentQueue.remove(incidentKey));
-                    emitIncident(incident);
+            // The data quality service publishes per-table batches; single checks are still accepted
+            JsonNode payload = objectMapper.readTree(checkJson);
+            if (payload.isArray()) {
+                for (JsonNode node : payload) {
+                    processCheck(objectMapper.treeToValue(node, DataQualityCheck.class), readyGroups);
                 }
+            } else {
+                processCheck(objectMapper.treeToValue(payload, DataQualityCheck.class), readyGroups);
             }
             
         } catch (Exception e) {
             log.error("Error processing data quality check", e);
         }
+        
+        if (readyGroups.isEmpty()) {
+            // Checks still buffered in a correlation window are not held for: see IncidentCorrelator
+            acknowledgment.acknowledge();
+            return;
+        }
+        
+        // Each group completes once its incident is emitted or its checks are dead-lettered
+        CompletableFuture<?>[] pending = readyGroups.stream()
+                .map(checks -> analyzeAndEmitAsync(checks)
+                        .exceptionallyCompose(error -> deadLetter(checks, error)))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(pending).whenComplete((result, error) -> {
+            if (error == null) {
+                acknowledgment.acknowledge();
+            } else {
+                log.error("Leaving data quality check record unacknowledged for redelivery", error);
+            }
+        });
     }
     
-    private Incident analyzeAndCreateIncident(List<DataQualityCheck> checks) {
+    private void processCheck(DataQualityCheck check, List<List<DataQualityCheck>> readyGroups) {
+        if (check.getStatus() == CheckStatus.FAILED) {
+            log.info("Processing failed data quality check: {}", check.getCheckId());
+            
+            // Correlate with recent failures; a group is returned once it is large enough
+            List<DataQualityCheck> correlated = correlator.add(check);
+            if (correlated != null) {
+                readyGroups.add(correlated);
+            }
+        }
+    }
+    
+    private CompletableFuture<Void> analyzeAndEmitAsync(List<DataQualityCheck> checks) {
+        // A symptom of an upstream failure that already has an incident is folded into it
+        String tableName = checks.get(0).getTableName();
+        LineageIncidentMerger.RootIncident upstream = lineageMerger.findOpenUpstream(tableName);
+        if (upstream != null) {
+            return foldIntoUpstream(upstream, checks);
+        }
+        
+        inFlight.acquireUninterruptibly();
+        return analyzeNewIncident(checks).whenComplete((result, error) -> inFlight.release());
+    }
+    
+    private CompletableFuture<Void> analyzeNewIncident(List<DataQualityCheck> checks) {
+        // Registered before analysis so symptoms arriving meanwhile fold in too
+        String tableName = checks.get(0).getTableName();
+        String incidentId = UUID.randomUUID().toString();
+        LineageIncidentMerger.RootIncident root = lineageMerger.open(tableName, incidentId);
+        // The classification a provisional incident was announced with, kept across attempts
+        AtomicReference<String> announced = new AtomicReference<>();
+        
+        return withRetries(() -> CompletableFuture.supplyAsync(() -> analyzeAndCreateIncident(incidentId, checks, announced), analysisExecutor)
+                        .thenCompose(incident -> root != null ? emitRootIncident(root, incident) : emitIncident(incident)),
+                1, retryInterval)
+                .exceptionallyCompose(error -> announced.get() != null
+                        ? emitFailedIncident(incidentId, checks, announced.get(), error)
+                        : CompletableFuture.failedFuture(error))
+                .whenComplete((result, error) -> {
+                    if (root != null) {
+                        lineageMerger.settle(root, error);
+                    }
+                    if (error != null) {
+                        log.error("Error analyzing incident for table {}", tableName, error);
+                    }
+                });
+    }
+    
+    /**
+     * Run {@code attempt} until it succeeds or {@code maxAttempts} is used
+     * up, doubling the wait between attempts. The incident keeps its id, so
+     * a provisional incident emitted by a failed attempt is replaced.
+     */
+    private CompletableFuture<Void> withRetries(Supplier<CompletableFuture<Void>> attempt,
+                                                int attemptNumber, long delayMs) {
+        CompletableFuture<Void> result;
+        try {
+            result = attempt.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        if (attemptNumber >= maxAttempts) {
+            return result;
+        }
+        return result.exceptionallyCompose(error -> {
+            log.warn("Incident analysis attempt {} of {} failed, retrying in {} ms: {}",
+                    attemptNumber, maxAttempts, delayMs, error.getMessage());
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> withRetries(attempt, attemptNumber + 1, delayMs * 2));
+        });
+    }
+    
+    /**
+     * Send the checks of an incident that could not be analyzed or emitted
+     * to the dead-letter topic, with the failure in its headers. Completes
+     * normally once the send succeeds, so the record can be acknowledged.
+     */
+    private CompletableFuture<Void> deadLetter(List<DataQualityCheck> checks, Throwable error) {
+        try {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            ProducerRecord<String, String> record = new ProducerRecord<>(KafkaConfig.DEAD_LETTER_TOPIC,
+                    checks.get(0).getTableName(), objectMapper.writeValueAsString(checks));
+            record.headers().add("aiops-exception-class", cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+            record.headers().add("aiops-exception-message",
+                    String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return kafkaTemplate.send(record)
+                    .thenAccept(result -> log.error("Sent {} checks for table {} to {} after {} attempts",
+                            checks.size(), checks.get(0).getTableName(), KafkaConfig.DEAD_LETTER_TOPIC, maxAttempts));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private CompletableFuture<Void> foldIntoUpstream(LineageIncidentMerger.RootIncident root,
+                                                     List<DataQualityCheck> checks) {
+        String tableName = checks.get(0).getTableName();
+        synchronized (root) {
+            lineageMerger.fold(root, tableName, checks.size(), IncidentSeverities.assess(checks));
+            Incident incident = root.getIncident();
+            if (incident != null) {
+                // Re-emit under the same id so the incident store updates it in place
+                root.applyFolds(incident);
+                return emitIncident(incident);
+            }
+        }
+        // Still being analyzed; the complete incident will carry this fold. If it is
+        // never emitted the symptom gets an incident of its own, analyzed outside the
+        // admission limit so a completing thread never waits for a permit
+        return root.getOutcome().exceptionallyCompose(error -> {
+            log.warn("Upstream incident {} on {} failed; analyzing the incident on {} on its own",
+                    root.getIncidentId(), root.getTable(), tableName);
+            return analyzeNewIncident(checks);
+        });
+    }
+    
+    private CompletableFuture<Void> emitRootIncident(LineageIncidentMerger.RootIncident root, Incident incident) {
+        synchronized (root) {
+            root.setIncident(incident);
+            root.applyFolds(incident);
+            return emitIncident(incident);
+        }
+    }
+    
+    private Incident analyzeAndCreateIncident(String incidentId, List<DataQualityCheck> checks,
+                                              AtomicReference<String> announced) {
         Incident incident = new Incident();
-        incident.setIncidentId(UUID.randomUUID().toString());
+        incident.setIncidentId(incidentId);
         incident.setDetectedAt(Instant.now());
         incident.setStatus(IncidentStatus.OPEN);
         
@@ -59,30 +268,47 @@ public class AIOpsService {
         AIService aiService = aiServiceProvider.getAIService();
         String tableName = checks.get(0).getTableName();
         
-        // Classify incident using AI
-        String classification = aiService.classifyIncident(checks);
+        // Determine severity
+        incident.setSeverity(IncidentSeverities.assess(checks));
+        
+        incident.setAffectedComponents(affectedComponents(checks));
+        
+        // A resolved incident with nearly the same checks answers without a provider call
+        List<String> features = IncidentSimilarityIndex.features(checks);
+        IncidentSimilarityIndex.Match similar = similarityIndex.findSimilar(features);
+        
+        // One structured request covers classification, root cause and remediations,
+        // shared with other incidents of the same burst when batching is on
+        IncidentAnalysis analysis;
+        if (similar != null) {
+            log.info("Reusing analysis of resolved incident {} (similarity {})",
+                    similar.incidentId(), String.format("%.2f", similar.similarity()));
+            analysis = similar.analysis();
+        } else if (incidentBatcher.isEnabled()) {
+            analysis = incidentBatcher.analyze(checks, tableName);
+        } else if (streamingEnabled) {
+            // Announce the incident as soon as the streamed classification arrives; a retry
+            // leaves the provisional incident of an earlier attempt in place
+            analysis = aiService.analyzeIncidentStreaming(checks, tableName, classification -> {
+                if (announced.compareAndSet(null, classification)) {
+                    emitProvisionalIncident(incident, checks, classification);
+                }
+            });
+        } else {
+            analysis = aiService.analyzeIncident(checks, tableName);
+        }
+        if (analysis == null) {
+            analysis = new IncidentAnalysis();
+        }
+        
+        String classification = analysis.getClassification();
         if (classification == null || classification.isEmpty()) {
             // Fallback if AI classification fails
             classification = getFallbackClassification(checks);
         }
         incident.setClassification(classification);
         
-        // Determine severity
-        long criticalCount = checks.stream()
-                .filter(c -> c.getActualValue() != null && c.getActualValue() > 50)
-                .count();
-        incident.setSeverity(criticalCount > 0 ? IncidentSeverity.CRITICAL : IncidentSeverity.HIGH);
-        
-        // Get affected components
-        Set<String> affectedComponents = new HashSet<>();
-        checks.forEach(c -> {
-            affectedComponents.add(c.getTableName());
-            affectedComponents.add(c.getCheckType().name());
-        });
-        incident.setAffectedComponents(new ArrayList<>(affectedComponents));
-        
-        // Generate root cause explanation using AI
-        String rootCause = aiService.generateRootCauseExplanation(checks, tableName, classification);
+        String rootCause = analysis.getRootCauseExplanation();
         if (rootCause == null || rootCause.isEmpty()) {
             // Fallback to rule-based if AI explanation fails
             log.warn("AI root cause explanation failed, using rule-based fallback");
@@ -90,8 +316,7 @@ public class AIOpsService {
         }
         incident.setRootCauseExplanation(rootCause);
         
-        // Generate remediation recommendations using AI
-        List<String> remediations = aiService.generateRemediations(checks, classification, rootCause);
+        List<String> remediations = analysis.getRecommendedRemediations();
         if (remediations == null || remediations.isEmpty()) {
             // Fallback to rule-based if AI remediations fail
             log.warn("AI remediation recommendations failed, using rule-based fallback");
@@ -100,25 +325,122 @@ public class AIOpsService {
         incident.setRecommendedRemediations(remediations);
         
         // Add metadata
+        Map<String, Object> metadata = checkMetadata(checks);
+        metadata.put("check_features", features);
+        metadata.put("analysis_state", "COMPLETE");
+        if (similar != null) {
+            metadata.put("similar_incident_id", similar.incidentId());
+            metadata.put("similarity", similar.similarity());
+        }
+        metadata.put("ai_provider", analysis.getProvider() != null ? analysis.getProvider() : fallbackService.getName());
+        incident.setMetadata(metadata);
+        
+        log.info("Created incident {} using AI provider: {}", incident.getIncidentId(), metadata.get("ai_provider"));
+        
+        return incident;
+    }
+    
+    /** The checked tables and check types, plus everything downstream of the incident's table. */
+    private List<String> affectedComponents(List<DataQualityCheck> checks) {
+        Set<String> affectedComponents = new HashSet<>();
+        checks.forEach(c -> {
+            affectedComponents.add(c.getTableName());
+            affectedComponents.add(c.getCheckType().name());
+        });
+        affectedComponents.addAll(lineageMerger.downstreamComponents(checks.get(0).getTableName()));
+        return new ArrayList<>(affectedComponents);
+    }
+    
+    /** Metadata shared by provisional, complete and failed incidents; the store fingerprints on table_name and primary_check_type. */
+    private Map<String, Object> checkMetadata(List<DataQualityCheck> checks) {
         Map<String, Object> metadata = new HashMap<>();
+        metadata.put("table_name", checks.get(0).getTableName());
+        metadata.put("primary_check_type", getPrimaryCheckType(checks).name());
         metadata.put("check_count", checks.size());
         metadata.put("first_check_time", checks.get(0).getTimestamp().toString());
         metadata.put("last_check_time", checks.get(checks.size() - 1).getTimestamp().toString());
-        metadata.put("ai_provider", aiService.getClass().getSimpleName());
-        incident.setMetadata(metadata);
-        
-        log.info("Created incident {} using AI provider: {}", incident.getIncidentId(), aiService.getClass().getSimpleName());
+        return metadata;
+    }
+    
+    /**
+     * Emit the incident with what is known before the analysis completes.
+     * The complete incident follows under the same id and replaces it in the
+     * incident store's upsert; both share a key, so they stay in order.
+     */
+    private void emitProvisionalIncident(Incident incident, List<DataQualityCheck> checks, String classification) {
+        Incident provisional = new Incident();
+        provisional.setIncidentId(incident.getIncidentId());
+        provisional.setDetectedAt(incident.getDetectedAt());
+        provisional.setStatus(incident.getStatus());
+        provisional.setSeverity(incident.getSeverity());
+        provisional.setAffectedComponents(incident.getAffectedComponents());
+        provisional.setClassification(classification);
+        Map<String, Object> metadata = checkMetadata(checks);
+        metadata.put("analysis_state", "PROVISIONAL");
+        provisional.setMetadata(metadata);
         
-        return incident;
+        emitIncident(provisional).whenComplete((result, error) -> {
+            if (error != null) {
+                log.warn("Error emitting provisional incident {}", incident.getIncidentId(), error);
+            }
+        });
+    }
+    
+    /**
+     * Replace the provisional incident of an analysis that failed for good
+     * with a FAILED one under the same id, carrying the announced
+     * classification and a rule-based root cause and remediations. Always
+     * completes with {@code error}, so the checks are still dead-lettered.
+     */
+    private CompletableFuture<Void> emitFailedIncident(String incidentId, List<DataQualityCheck> checks,
+                                                       String classification, Throwable error) {
+        CompletableFuture<Void> emitted;
+        try {
+            String tableName = checks.get(0).getTableName();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            Incident failed = new Incident();
+            failed.setIncidentId(incidentId);
+            failed.setDetectedAt(Instant.now());
+            failed.setStatus(IncidentStatus.OPEN);
+            failed.setSeverity(IncidentSeverities.assess(checks));
+            failed.setAffectedComponents(affectedComponents(checks));
+            failed.setClassification(classification);
+            String rootCause = fallbackService.generateRootCauseExplanation(checks, tableName, classification);
+            failed.setRootCauseExplanation(rootCause);
+            failed.setRecommendedRemediations(fallbackService.generateRemediations(checks, classification, rootCause));
+            Map<String, Object> metadata = checkMetadata(checks);
+            metadata.put("analysis_state", "FAILED");
+            metadata.put("analysis_error", String.valueOf(cause.getMessage()));
+            metadata.put("ai_provider", fallbackService.getName());
+            failed.setMetadata(metadata);
+            emitted = emitIncident(failed);
+        } catch (RuntimeException e) {
+            emitted = CompletableFuture.failedFuture(e);
+        }
+        return emitted.handle((result, emitError) -> {
+            if (emitError != null) {
+                log.warn("Error emitting failed incident {}; it stays provisional", incidentId, emitError);
+            }
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        });
+    }
+    
+    private CheckType getPrimaryCheckType(List<DataQualityCheck> checks) {
+        // Correlated groups may mix check types; the most frequent one drives classification
+        Map<CheckType, Integer> counts = new EnumMap<>(CheckType.class);
+        checks.forEach(c -> counts.merge(c.getCheckType(), 1, Integer::sum));
+        return Collections.max(counts.entrySet(), Map.Entry.comparingByValue()).getKey();
     }
     
     private String getFallbackClassification(List<DataQualityCheck> checks) {
-        CheckType primaryType = checks.get(0).getCheckType();
+        CheckType primaryType = getPrimaryCheckType(checks);
         
         switch (primaryType) {
             case ROW_COUNT_ANOMALY:
                 return "DATA_INGESTION_FAILURE";
             case NULL_RATE:
+            case TYPE_MISMATCH:
                 return "DATA_QUALITY_DEGRADATION";
             case SCHEMA_DRIFT:
                 return "SCHEMA_COMPATIBILITY_ISSUE";
@@ -129,13 +451,15 @@ public class AIOpsService {
         }
     }
     
-    private void emitIncident(Incident incident) {
+    private CompletableFuture<Void> emitIncident(Incident incident) {
         try {
             String incidentJson = objectMapper.writeValueAsString(incident);
-            kafkaTemplate.send("incidents", incident.getIncidentId(), incidentJson);
-            log.info("Emitted incident: {} - {}", incident.getIncidentId(), incident.getClassification());
+            return kafkaTemplate.send("incidents", incident.getIncidentId(), incidentJson)
+                    .thenAccept(result -> log.info("Emitted incident: {} - {}",
+                            incident.getIncidentId(), incident.getClassification()));
         } catch (Exception e) {
             log.error("Error emitting incident", e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
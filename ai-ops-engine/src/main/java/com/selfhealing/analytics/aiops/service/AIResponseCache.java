@@ -0,0 +1,298 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache of AI provider responses keyed by a fingerprint of the prompt kind,
+ * the providers that may answer it and a normalized view of the checks. Normalization drops
+ * run-specific details (timestamps, check ids, emission bookkeeping), rounds
+ * numbers to two significant digits and ignores check order and duplicates,
+ * so a recurring failure pattern maps to the same key.
+ *
+ * <p>The in-memory tier is a size-bounded Caffeine cache (W-TinyLFU eviction)
+ * with a write TTL, holding futures: a miss installs an incomplete future and
+ * the caller loads outside the cache's map lock, so a slow provider call
+ * never blocks lookups of other keys that hash to the same bin. When
+ * {@code ai.cache.disk.enabled} is set, entries are also written as one JSON
+ * file each under {@code ai.cache.disk.directory} and read back on a memory
+ * miss, so answers survive restarts.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AIResponseCache {
+
+    private static final Set<String> VOLATILE_DETAILS = Set.of(
+            "emission_reason", "state_since", "consecutive_runs",
+            "ci_lower", "ci_upper", "confidence", "sample_rows", "sample_percent", "estimate_method");
+
+    private static final MathContext SIGNIFICANT_DIGITS = new MathContext(2);
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${ai.cache.ttl:PT6H}")
+    private Duration ttl;
+
+    @Value("${ai.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${ai.cache.disk.directory:./ai-response-cache}")
+    private String diskDirectory;
+
+    private AsyncCache<String, Object> cache;
+    private Path diskPath;
+    private Counter diskHits;
+    private Counter diskMisses;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "ai.response");
+        Gauge.builder("ai.response.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+             .description("Fraction of AI provider lookups served from memory")
+             .register(meterRegistry);
+        diskHits = Counter.builder("ai.response.cache.disk").tag("result", "hit").register(meterRegistry);
+        diskMisses = Counter.builder("ai.response.cache.disk").tag("result", "miss").register(meterRegistry);
+
+        if (diskEnabled) {
+            try {
+                diskPath = Files.createDirectories(Paths.get(diskDirectory));
+                purgeExpiredFiles();
+            } catch (IOException e) {
+                log.error("Cannot use AI response cache directory {}, disk tier disabled", diskDirectory, e);
+                diskPath = null;
+            }
+        }
+        log.info("AI response cache: max {} entries, TTL {}, disk tier {}",
+                maxEntries, ttl, diskPath != null ? diskPath.toAbsolutePath() : "off");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the cached response for the key, or compute it with the loader
+     * on the calling thread. Concurrent lookups of the same key wait for the
+     * one provider call in flight. Null results (provider failures) are
+     * never cached; callers that waited on one call the loader themselves.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CompletableFuture<Object> claim = new CompletableFuture<>();
+        CompletableFuture<Object> entry = cache.get(key, (k, executor) -> claim);
+        if (entry != claim) {
+            Object shared = entry.exceptionally(error -> null).join();
+            return shared != null ? (T) shared : loader.get();
+        }
+
+        try {
+            T value = readFromDisk(key, type);
+            if (value == null) {
+                value = loader.get();
+                if (value != null) {
+                    writeToDisk(key, value);
+                }
+            }
+            // Caffeine drops entries whose future completes with null
+            claim.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Cached response for the key from memory or disk, without loading.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getIfPresent(String key, TypeReference<T> type) {
+        if (!enabled) {
+            return null;
+        }
+        CompletableFuture<Object> entry = cache.getIfPresent(key);
+        Object value = entry != null ? entry.exceptionally(error -> null).join() : null;
+        if (value == null) {
+            value = readFromDisk(key, type);
+            if (value != null) {
+                cache.put(key, CompletableFuture.completedFuture(value));
+            }
+        }
+        return (T) value;
+    }
+
+    public void put(String key, Object value) {
+        if (enabled && value != null) {
+            cache.put(key, CompletableFuture.completedFuture(value));
+            writeToDisk(key, value);
+        }
+    }
+
+    /**
+     * Fingerprint of a request. {@code context} carries the other prompt
+     * inputs, such as the classification a root cause is asked for.
+     */
+    public String fingerprint(String kind, String provider, List<DataQualityCheck> checks, String... context) {
+        SortedSet<String> normalizedChecks = new TreeSet<>();
+        for (DataQualityCheck check : checks) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(check.getTableName()).append('|')
+              .append(check.getCheckType()).append('|')
+              .append(check.getStatus()).append('|')
+              .append(normalize(check.getActualValue())).append('|')
+              .append(normalize(check.getThreshold())).append('|');
+            if (check.getDetails() != null) {
+                sb.append(normalize(check.getDetails()));
+            }
+            normalizedChecks.add(sb.toString());
+        }
+
+        StringBuilder material = new StringBuilder();
+        material.append(kind).append('\n').append(provider).append('\n');
+        normalizedChecks.forEach(c -> material.append(c).append('\n'));
+        for (String value : context) {
+            material.append(value != null ? value.trim() : "").append('\n');
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(material.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String normalize(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return String.valueOf(d);
+            }
+            return new BigDecimal(d).round(SIGNIFICANT_DIGITS).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Map<?, ?> map) {
+            SortedMap<String, String> sorted = new TreeMap<>();
+            map.forEach((k, v) -> {
+                if (!VOLATILE_DETAILS.contains(String.valueOf(k))) {
+                    sorted.put(String.valueOf(k), normalize(v));
+                }
+            });
+            return sorted.toString();
+        }
+        if (value instanceof Collection<?> collection) {
+            List<String> items = new ArrayList<>();
+            collection.forEach(item -> items.add(normalize(item)));
+            return items.toString();
+        }
+        return value.toString();
+    }
+
+    private <T> T readFromDisk(String key, TypeReference<T> type) {
+        if (diskPath == null) {
+            return null;
+        }
+        Path file = diskPath.resolve(key + ".json");
+        try {
+            if (Files.exists(file)) {
+                JsonNode entry = objectMapper.readTree(file.toFile());
+                if (Instant.parse(entry.get("expires_at").asText()).isAfter(Instant.now())) {
+                    diskHits.increment();
+                    return objectMapper.convertValue(entry.get("value"), type);
+                }
+                Files.deleteIfExists(file);
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable AI response cache file {}", file, e);
+        }
+        diskMisses.increment();
+        return null;
+    }
+
+    private void writeToDisk(String key, Object value) {
+        if (diskPath == null) {
+            return;
+        }
+        try {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("expires_at", Instant.now().plus(ttl).toString());
+            entry.put("value", value);
+            Path tmp = Files.createTempFile(diskPath, key, ".tmp");
+            objectMapper.writeValue(tmp.toFile(), entry);
+            Files.move(tmp, diskPath.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Error writing AI response cache entry {}", key, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.cache.disk.purge-interval-ms:3600000}")
+    public void purgeExpiredFiles() {
+        if (diskPath == null) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(ttl);
+        int purged = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskPath, "*.{json,tmp}")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error purging AI response cache directory", e);
+        }
+        if (purged > 0) {
+            log.debug("Purged {} expired AI response cache files", purged);
+        }
+    }
+}
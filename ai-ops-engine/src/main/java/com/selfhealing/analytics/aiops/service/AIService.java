@@ -1,7 +1,11 @@
 package com.selfhealing.analytics.aiops.service;
 
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
 import com.selfhealing.analytics.common.model.DataQualityCheck;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Interface for AI-powered analysis services.
@@ -37,6 +41,67 @@ public interface AIService {
      */
     String classifyIncident(List<DataQualityCheck> checks);
     
+    /**
+     * Produce classification, root cause and remediations for an incident.
+     * Providers backed by a remote model override this with a single
+     * structured request; the default chains the individual calls.
+     * 
+     * @param checks List of failed data quality checks
+     * @param tableName The affected table name
+     * @return Analysis with possibly missing fields, or null if nothing could be produced
+     */
+    default IncidentAnalysis analyzeIncident(List<DataQualityCheck> checks, String tableName) {
+        String classification = classifyIncident(checks);
+        if (classification == null || classification.isEmpty()) {
+            return null;
+        }
+        String rootCause = generateRootCauseExplanation(checks, tableName, classification);
+        List<String> remediations = generateRemediations(checks, classification, rootCause);
+        return new IncidentAnalysis(classification, rootCause, remediations);
+    }
+    
+    /**
+     * Like {@link #analyzeIncident}, but reports the classification through
+     * {@code onClassification} as soon as it is known, before root cause and
+     * remediations are complete. Providers with a streaming API override
+     * this; the default reports nothing early.
+     * 
+     * @param checks List of failed data quality checks
+     * @param tableName The affected table name
+     * @param onClassification Called at most once with the classification
+     * @return Complete analysis, or null if nothing could be produced
+     */
+    default IncidentAnalysis analyzeIncidentStreaming(List<DataQualityCheck> checks, String tableName,
+                                                      Consumer<String> onClassification) {
+        return analyzeIncident(checks, tableName);
+    }
+    
+    /**
+     * Analyze several incidents at once. Providers backed by a remote model
+     * override this with one structured request for the whole batch; the
+     * default analyzes them one by one.
+     * 
+     * @param incidents Failed checks per incident, keyed by a caller-chosen id
+     * @return Analyses by id; incidents that could not be analyzed are absent
+     */
+    default Map<String, IncidentAnalysis> analyzeIncidents(Map<String, List<DataQualityCheck>> incidents) {
+        Map<String, IncidentAnalysis> analyses = new LinkedHashMap<>();
+        incidents.forEach((id, checks) -> {
+            IncidentAnalysis analysis = analyzeIncident(checks, checks.get(0).getTableName());
+            if (analysis != null) {
+                analyses.put(id, analysis);
+            }
+        });
+        return analyses;
+    }
+    
+    /**
+     * Provider name recorded on incidents and in logs.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+    
     /**
      * Check if AI service is available and configured.
      * 
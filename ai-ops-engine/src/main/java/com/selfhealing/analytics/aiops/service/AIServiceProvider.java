@@ -1,59 +1,320 @@
 package com.selfhealing.analytics.aiops.service;
 
-import lombok.RequiredArgsConstructor;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
- * Provider that selects the appropriate AI service based on configuration.
- * Priority: OpenAI > Anthropic > Rule-based fallback
+ * Routes AI calls across the configured remote providers.
+ * <ul>
+ *   <li>Each provider has a circuit breaker; a null result counts as a failure.</li>
+ *   <li>Providers are tried in order of smoothed latency, with an explicitly
+ *       configured {@code ai.provider} always first while its breaker is closed.</li>
+ *   <li>With hedging enabled, a second provider is called if the first has not
+ *       answered by its p95 latency, and the first non-null answer wins.</li>
+ *   <li>When every breaker is open the router returns null immediately, so
+ *       callers go straight to {@link RuleBasedFallbackService}.</li>
+ *   <li>Each call must fit the provider's {@link LlmRateLimiter} budget at the
+ *       incident's severity; providers without headroom are skipped.</li>
+ * </ul>
+ * Breaker state, latency and hedging are exported as metrics.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class AIServiceProvider {
-    
+
     private final List<AIService> aiServices;
-    
+    private final RuleBasedFallbackService fallbackService;
+    private final AIResponseCache responseCache;
+    private final LlmRateLimiter rateLimiter;
+    private final ThreadPoolTaskExecutor providerCallExecutor;
+    private final MeterRegistry meterRegistry;
+
     @Value("${ai.provider:auto}")
     private String provider;
-    
+
+    @Value("${ai.router.call-timeout:PT35S}")
+    private Duration callTimeout;
+
+    @Value("${ai.router.hedge.enabled:true}")
+    private boolean hedgingEnabled;
+
+    @Value("${ai.router.hedge.min-delay:PT2S}")
+    private Duration minHedgeDelay;
+
+    @Value("${ai.router.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${ai.router.breaker.minimum-calls:5}")
+    private int breakerMinimumCalls;
+
+    @Value("${ai.router.breaker.failure-rate-threshold:0.5}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${ai.router.breaker.open-duration:PT30S}")
+    private Duration breakerOpenDuration;
+
+    private final Map<AIService, ProviderHealth> health = new LinkedHashMap<>();
+    private AIService entryPoint;
+    private Counter fastPathCounter;
+
+    public AIServiceProvider(List<AIService> aiServices,
+                             RuleBasedFallbackService fallbackService,
+                             AIResponseCache responseCache,
+                             LlmRateLimiter rateLimiter,
+                             @Qualifier("providerCallExecutor") ThreadPoolTaskExecutor providerCallExecutor,
+                             MeterRegistry meterRegistry) {
+        this.aiServices = aiServices;
+        this.fallbackService = fallbackService;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.providerCallExecutor = providerCallExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (AIService service : aiServices) {
+            if (service instanceof RuleBasedFallbackService || !service.isAvailable()) {
+                continue;
+            }
+            ProviderHealth providerHealth = new ProviderHealth(breakerWindowSize, breakerMinimumCalls,
+                    breakerFailureRateThreshold, breakerOpenDuration);
+            health.put(service, providerHealth);
+            Gauge.builder("ai.provider.breaker.state", providerHealth, h -> h.getState().ordinal())
+                 .description("0 = closed, 1 = half-open, 2 = open")
+                 .tag("provider", service.getName())
+                 .register(meterRegistry);
+            Gauge.builder("ai.provider.latency.ewma", providerHealth, ProviderHealth::getEwmaMillis)
+                 .baseUnit("milliseconds")
+                 .tag("provider", service.getName())
+                 .register(meterRegistry);
+        }
+        fastPathCounter = Counter.builder("ai.router.fast.path")
+                .description("Calls sent to the rule-based path because no provider had breaker or budget headroom")
+                .register(meterRegistry);
+
+        if (health.isEmpty()) {
+            log.info("No AI providers available, using rule-based fallback");
+            entryPoint = fallbackService;
+        } else {
+            AIService router = new RoutingAIService(this);
+            String providers = String.join("+", health.keySet().stream().map(AIService::getName).toList());
+            entryPoint = responseCache.isEnabled() ? new CachingAIService(router, responseCache, providers) : router;
+            log.info("AI providers: {} (preferred: {}, hedging {})",
+                    health.keySet().stream().map(AIService::getName).toList(), provider, hedgingEnabled ? "on" : "off");
+        }
+    }
+
     /**
-     * Get the best available AI service.
-     * 
-     * @return The configured AI service, or fallback to rule-based
+     * Get the AI service to use for an incident: the cached router over the
+     * remote providers, or the rule-based fallback when none is configured.
      */
     public AIService getAIService() {
-        // If explicitly configured, use that provider
-        if (!"auto".equalsIgnoreCase(provider)) {
-            for (AIService service : aiServices) {
-                if (service.getClass().getSimpleName().toLowerCase().contains(provider.toLowerCase())) {
-                    if (service.isAvailable()) {
-                        log.info("Using explicitly configured AI provider: {}", service.getClass().getSimpleName());
-                        return service;
-                    } else {
-                        log.warn("Configured provider {} is not available, falling back", provider);
-                    }
+        return entryPoint;
+    }
+
+    boolean hasRemoteProviders() {
+        return !health.isEmpty();
+    }
+
+    /**
+     * Run {@code call} against the best provider, hedging and failing over
+     * as configured. Returns null when no provider produced a result or
+     * none had breaker and budget headroom for a request of this severity
+     * and estimated token count.
+     */
+    <T> T route(String operation, IncidentSeverity severity, int estimatedTokens, Function<AIService, T> call) {
+        List<AIService> candidates = rankedCandidates();
+        Set<AIService> tried = new HashSet<>();
+        CallBudget budget = new CallBudget(severity, estimatedTokens);
+
+        AIService primary = acquireNext(candidates, tried, budget, false);
+        if (primary == null && severity == IncidentSeverity.CRITICAL) {
+            // Nobody has headroom right now; critical work may wait for a refill
+            primary = acquireNext(candidates, tried, budget, true);
+        }
+        if (primary == null) {
+            fastPathCounter.increment();
+            log.debug("No AI provider has breaker and budget headroom, skipping {} {} call", severity, operation);
+            return null;
+        }
+
+        T result;
+        long hedgeDelay = hedgeDelayMillis(primary);
+        if (hedgingEnabled && hedgeDelay > 0 && candidates.size() > 1) {
+            result = callHedged(operation, primary, candidates, tried, budget, hedgeDelay, call);
+        } else {
+            result = invoke(primary, operation, call);
+        }
+
+        // Fail over to providers not tried yet
+        while (result == null) {
+            AIService next = acquireNext(candidates, tried, budget, false);
+            if (next == null) {
+                break;
+            }
+            log.debug("Failing over {} call to {}", operation, next.getName());
+            result = invoke(next, operation, call);
+        }
+        return result;
+    }
+
+    private <T> T callHedged(String operation, AIService primary, List<AIService> candidates, Set<AIService> tried,
+                             CallBudget budget, long hedgeDelay, Function<AIService, T> call) {
+        List<CompletableFuture<T>> attempts = new ArrayList<>();
+        CompletableFuture<T> first = invokeAsync(primary, operation, call);
+        if (first == null) {
+            return invoke(primary, operation, call);
+        }
+        attempts.add(first);
+
+        try {
+            T result = first.get(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                return result;
+            }
+        } catch (TimeoutException e) {
+            AIService secondary = acquireNext(candidates, tried, budget, false);
+            if (secondary != null) {
+                CompletableFuture<T> hedge = invokeAsync(secondary, operation, call);
+                if (hedge != null) {
+                    log.debug("Hedging {} call: {} slower than {}ms, also asking {}",
+                            operation, primary.getName(), hedgeDelay, secondary.getName());
+                    meterRegistry.counter("ai.provider.hedged", "provider", secondary.getName()).increment();
+                    attempts.add(hedge);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
         }
-        
-        // Auto-select: try OpenAI first, then Anthropic, then fallback
-        for (AIService service : aiServices) {
-            if (service.isAvailable() && !(service instanceof RuleBasedFallbackService)) {
-                log.info("Auto-selected AI provider: {}", service.getClass().getSimpleName());
-                return service;
-            }
-        }
-        
-        // Fallback to rule-based
-        log.info("No AI providers available, using rule-based fallback");
-        return aiServices.stream()
-                .filter(s -> s instanceof RuleBasedFallbackService)
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No AI service available"));
+        return firstNonNull(attempts, callTimeout.toMillis());
+    }
+
+    private <T> T firstNonNull(List<CompletableFuture<T>> attempts, long timeoutMillis) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(attempts.size());
+        attempts.forEach(attempt -> attempt.whenComplete((value, error) -> {
+            if (value != null) {
+                winner.complete(value);
+            } else if (remaining.decrementAndGet() == 0) {
+                winner.complete(null);
+            }
+        }));
+        try {
+            return winner.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private <T> CompletableFuture<T> invokeAsync(AIService service, String operation, Function<AIService, T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> invoke(service, operation, call), providerCallExecutor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private <T> T invoke(AIService service, String operation, Function<AIService, T> call) {
+        ProviderHealth providerHealth = health.get(service);
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = call.apply(service);
+        } catch (Exception e) {
+            log.error("AI provider {} failed on {} call", service.getName(), operation, e);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Timer.builder("ai.provider.latency")
+             .tag("provider", service.getName())
+             .tag("operation", operation)
+             .tag("outcome", result != null ? "success" : "failure")
+             .publishPercentileHistogram()
+             .register(meterRegistry)
+             .record(elapsed, TimeUnit.NANOSECONDS);
+
+        if (result != null) {
+            providerHealth.recordSuccess(elapsed);
+        } else {
+            ProviderHealth.State before = providerHealth.getState();
+            providerHealth.recordFailure();
+            if (before != ProviderHealth.State.OPEN && providerHealth.getState() == ProviderHealth.State.OPEN) {
+                log.warn("Circuit breaker opened for AI provider {} for {}", service.getName(), breakerOpenDuration);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Providers whose breaker would admit a call, preferred provider first,
+     * then by smoothed latency.
+     */
+    private List<AIService> rankedCandidates() {
+        List<AIService> candidates = new ArrayList<>();
+        health.forEach((service, providerHealth) -> {
+            if (providerHealth.isCallPermitted()) {
+                candidates.add(service);
+            }
+        });
+        candidates.sort(Comparator.comparing((AIService service) -> !isPreferred(service))
+                .thenComparingDouble(service -> health.get(service).getEwmaMillis()));
+        return candidates;
+    }
+
+    /**
+     * Next untried provider that both its rate budget and its breaker admit.
+     * With {@code allowWait}, CRITICAL requests wait for budget to refill.
+     */
+    private AIService acquireNext(List<AIService> candidates, Set<AIService> tried, CallBudget budget, boolean allowWait) {
+        for (AIService service : candidates) {
+            if (tried.contains(service)) {
+                continue;
+            }
+            if (!rateLimiter.tryAcquire(service.getName(), budget.severity, budget.tokens, allowWait)) {
+                continue;
+            }
+            if (!health.get(service).tryAcquire()) {
+                rateLimiter.release(service.getName(), budget.tokens);
+                continue;
+            }
+            tried.add(service);
+            return service;
+        }
+        return null;
+    }
+
+    private record CallBudget(IncidentSeverity severity, int tokens) {
+    }
+
+    private boolean isPreferred(AIService service) {
+        return !"auto".equalsIgnoreCase(provider)
+                && service.getClass().getSimpleName().toLowerCase().contains(provider.toLowerCase());
+    }
+
+    private long hedgeDelayMillis(AIService service) {
+        long p95 = health.get(service).getP95Millis();
+        return p95 < 0 ? -1 : Math.max(p95, minHedgeDelay.toMillis());
     }
 }
@@ -0,0 +1,188 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt and response handling for the single structured analysis request
+ * that replaces separate classification, root cause and remediation calls.
+ */
+final class AnalysisPrompt {
+    
+    static final String SYSTEM_MESSAGE = "You are an expert data engineer and SRE analyzing data quality incidents. " +
+            "Respond with a single JSON object and nothing else.";
+    
+    static final int MAX_TOKENS = 800;
+    
+    static final int MAX_BATCH_TOKENS = 4000;
+    
+    private static final Pattern STREAMED_CLASSIFICATION = Pattern.compile("\"classification\"\\s*:\\s*\"([A-Za-z_]+)\"");
+    
+    private AnalysisPrompt() {
+    }
+    
+    static String build(List<DataQualityCheck> checks, String tableName) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Analyze the following data quality incident.\n\n");
+        sb.append("Table: ").append(tableName).append("\n");
+        appendChecks(sb, checks);
+        
+        sb.append("\nReturn a JSON object with these fields:\n");
+        appendFieldSpec(sb, "  ");
+        return sb.toString();
+    }
+    
+    /**
+     * One prompt for several incidents, keyed by caller-chosen ids that the
+     * model must echo back.
+     */
+    static String buildBatch(Map<String, List<DataQualityCheck>> incidents) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Analyze each of the following ").append(incidents.size()).append(" data quality incidents independently.\n");
+        incidents.forEach((id, checks) -> {
+            sb.append("\nIncident ").append(id).append(" (table ").append(checks.get(0).getTableName()).append(")\n");
+            appendChecks(sb, checks);
+        });
+        
+        sb.append("\nReturn a JSON object {\"incidents\": [...]} with one entry per incident and these fields:\n");
+        sb.append("  \"id\": the incident id exactly as given above\n");
+        appendFieldSpec(sb, "  ");
+        return sb.toString();
+    }
+    
+    static int batchMaxTokens(int incidentCount) {
+        return Math.min(MAX_BATCH_TOKENS, MAX_TOKENS * incidentCount);
+    }
+    
+    private static void appendChecks(StringBuilder sb, List<DataQualityCheck> checks) {
+        sb.append("Failed Checks:\n");
+        for (int i = 0; i < checks.size(); i++) {
+            DataQualityCheck check = checks.get(i);
+            sb.append(String.format("  %d. Type: %s, Table: %s, Status: %s",
+                    i + 1, check.getCheckType(), check.getTableName(), check.getStatus()));
+            if (check.getActualValue() != null) {
+                sb.append(String.format(", Actual Value: %.2f", check.getActualValue()));
+            }
+            if (check.getThreshold() != null) {
+                sb.append(String.format(", Threshold: %.2f", check.getThreshold()));
+            }
+            if (check.getDetails() != null && !check.getDetails().isEmpty()) {
+                sb.append(", Details: ").append(check.getDetails());
+            }
+            sb.append("\n");
+        }
+    }
+    
+    private static void appendFieldSpec(StringBuilder sb, String indent) {
+        sb.append(indent).append("\"classification\": one of DATA_INGESTION_FAILURE, DATA_QUALITY_DEGRADATION, ");
+        sb.append("SCHEMA_COMPATIBILITY_ISSUE, BATCH_JOB_FAILURE, UNKNOWN_DATA_ISSUE\n");
+        sb.append(indent).append("\"root_cause\": a concise technical explanation of the root cause\n");
+        sb.append(indent).append("\"remediations\": an array of specific, actionable remediation steps\n");
+    }
+    
+    /**
+     * Parse the model's answer, tolerating code fences or text around the
+     * JSON object. Returns null when no usable object is found.
+     */
+    static IncidentAnalysis parse(String response, ObjectMapper objectMapper) throws Exception {
+        if (response == null) {
+            return null;
+        }
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        
+        return toAnalysis(objectMapper.readTree(response.substring(start, end + 1)));
+    }
+    
+    /**
+     * Parse a batch answer into analyses by incident id. Entries that are
+     * missing or malformed are simply absent from the result.
+     */
+    static Map<String, IncidentAnalysis> parseBatch(String response, ObjectMapper objectMapper) throws Exception {
+        Map<String, IncidentAnalysis> analyses = new LinkedHashMap<>();
+        if (response == null) {
+            return analyses;
+        }
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return analyses;
+        }
+        
+        JsonNode incidents = objectMapper.readTree(response.substring(start, end + 1)).get("incidents");
+        if (incidents != null && incidents.isArray()) {
+            for (JsonNode node : incidents) {
+                if (node.isObject() && node.hasNonNull("id")) {
+                    IncidentAnalysis analysis = toAnalysis(node);
+                    if (analysis.getClassification() != null || analysis.getRootCauseExplanation() != null) {
+                        analyses.put(node.get("id").asText().trim(), analysis);
+                    }
+                }
+            }
+        }
+        return analyses;
+    }
+    
+    private static IncidentAnalysis toAnalysis(JsonNode node) {
+        IncidentAnalysis analysis = new IncidentAnalysis();
+        if (node.hasNonNull("classification")) {
+            analysis.setClassification(node.get("classification").asText().trim().toUpperCase());
+        }
+        if (node.hasNonNull("root_cause")) {
+            analysis.setRootCauseExplanation(node.get("root_cause").asText().trim());
+        }
+        JsonNode remediations = node.get("remediations");
+        if (remediations != null && remediations.isArray()) {
+            List<String> steps = new ArrayList<>();
+            remediations.forEach(step -> {
+                if (!step.asText().isBlank()) {
+                    steps.add(step.asText().trim());
+                }
+            });
+            analysis.setRecommendedRemediations(steps);
+        }
+        return analysis;
+    }
+    
+    /**
+     * Collects a streamed answer and reports the classification as soon as
+     * its value has fully arrived, before the rest of the JSON object.
+     */
+    static class StreamAccumulator {
+        private final StringBuilder text = new StringBuilder();
+        private final Consumer<String> onClassification;
+        private boolean announced;
+        
+        StreamAccumulator(Consumer<String> onClassification) {
+            this.onClassification = onClassification;
+        }
+        
+        void append(String chunk) {
+            text.append(chunk);
+            if (!announced) {
+                Matcher matcher = STREAMED_CLASSIFICATION.matcher(text);
+                if (matcher.find()) {
+                    announced = true;
+                    onClassification.accept(matcher.group(1).toUpperCase());
+                }
+            }
+        }
+        
+        String getText() {
+            return text.toString();
+        }
+    }
+}
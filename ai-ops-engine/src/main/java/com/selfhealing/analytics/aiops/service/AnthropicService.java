@@ -2,16 +2,21 @@ package com.selfhealing.analytics.aiops.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
 import com.selfhealing.analytics.common.model.DataQualityCheck;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -126,11 +131,133 @@ public class AnthropicService implements AIService {
         return null;
     }
     
+    @Override
+    public IncidentAnalysis analyzeIncident(List<DataQualityCheck> checks, String tableName) {
+        if (!isAvailable()) {
+            return null;
+        }
+        
+        try {
+            String response = callAnthropic(AnalysisPrompt.build(checks, tableName), AnalysisPrompt.SYSTEM_MESSAGE, AnalysisPrompt.MAX_TOKENS);
+            IncidentAnalysis analysis = AnalysisPrompt.parse(response, objectMapper);
+            if (analysis != null) {
+                log.info("Generated AI incident analysis for table: {}", tableName);
+                return analysis;
+            }
+            log.warn("Anthropic analysis response did not contain a JSON object");
+        } catch (Exception e) {
+            log.error("Error calling Anthropic for incident analysis", e);
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public IncidentAnalysis analyzeIncidentStreaming(List<DataQualityCheck> checks, String tableName,
+                                                     Consumer<String> onClassification) {
+        if (!isAvailable()) {
+            return null;
+        }
+        
+        try {
+            String response = streamAnthropic(AnalysisPrompt.build(checks, tableName), AnalysisPrompt.SYSTEM_MESSAGE,
+                    AnalysisPrompt.MAX_TOKENS, onClassification);
+            IncidentAnalysis analysis = AnalysisPrompt.parse(response, objectMapper);
+            if (analysis != null) {
+                log.info("Generated streamed AI incident analysis for table: {}", tableName);
+                return analysis;
+            }
+            log.warn("Anthropic streamed analysis did not contain a JSON object");
+        } catch (Exception e) {
+            log.error("Error streaming Anthropic incident analysis", e);
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public Map<String, IncidentAnalysis> analyzeIncidents(Map<String, List<DataQualityCheck>> incidents) {
+        if (!isAvailable()) {
+            return Map.of();
+        }
+        
+        try {
+            String response = callAnthropic(AnalysisPrompt.buildBatch(incidents), AnalysisPrompt.SYSTEM_MESSAGE,
+                    AnalysisPrompt.batchMaxTokens(incidents.size()));
+            Map<String, IncidentAnalysis> analyses = AnalysisPrompt.parseBatch(response, objectMapper);
+            log.info("Generated AI analysis for {} of {} batched incidents", analyses.size(), incidents.size());
+            return analyses;
+        } catch (Exception e) {
+            log.error("Error calling Anthropic for batched incident analysis", e);
+        }
+        
+        return Map.of();
+    }
+    
+    /**
+     * Same request as {@link #callAnthropic} with {@code stream: true}; text is
+     * handed to an accumulator as server-sent events arrive.
+     */
+    private String streamAnthropic(String prompt, String systemMessage, int maxTokens, Consumer<String> onClassification) {
+        AnalysisPrompt.StreamAccumulator accumulator = new AnalysisPrompt.StreamAccumulator(onClassification);
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("model", model);
+            requestBody.put("max_tokens", maxTokens);
+            requestBody.put("temperature", 0.3);
+            requestBody.put("system", systemMessage);
+            requestBody.put("messages", Arrays.asList(
+                    Map.of("role", "user", "content", prompt)
+            ));
+            requestBody.put("stream", true);
+            
+            String requestJson = objectMapper.writeValueAsString(requestBody);
+            
+            getWebClient()
+                    .post()
+                    .uri("/messages")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestJson)
+                    .retrieve()
+                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    .map(event -> event.data() != null ? event.data() : "")
+                    .doOnNext(data -> appendStreamedText(data, accumulator))
+                    .blockLast(Duration.ofSeconds(30));
+        } catch (Exception e) {
+            log.error("Error reading Anthropic stream", e);
+            throw new RuntimeException("Failed to read Anthropic stream", e);
+        }
+        
+        return accumulator.getText();
+    }
+    
+    private void appendStreamedText(String data, AnalysisPrompt.StreamAccumulator accumulator) {
+        if (data.isBlank()) {
+            return;
+        }
+        try {
+            // Text arrives in content_block_delta events as delta.text
+            JsonNode event = objectMapper.readTree(data);
+            if ("content_block_delta".equals(event.path("type").asText())) {
+                JsonNode text = event.path("delta").path("text");
+                if (text.isTextual()) {
+                    accumulator.append(text.asText());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Skipping unparseable Anthropic stream event");
+        }
+    }
+    
     private String callAnthropic(String prompt, String systemMessage) {
+        return callAnthropic(prompt, systemMessage, 500);
+    }
+    
+    private String callAnthropic(String prompt, String systemMessage, int maxTokens) {
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", model);
-            requestBody.put("max_tokens", 500);
+            requestBody.put("max_tokens", maxTokens);
             requestBody.put("temperature", 0.3);
             requestBody.put("system", systemMessage);
             requestBody.put("messages", Arrays.asList(
@@ -0,0 +1,132 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that serves repeated requests to a remote AI provider from
+ * {@link AIResponseCache}. Created by {@link AIServiceProvider}; not a bean.
+ * <p>
+ * It sits in front of the router, so the provider that will answer is not
+ * known when the key is built; keys carry the names of the providers the
+ * router may use instead, and change when that set does. Analyses served
+ * from the cache report their provider as {@code cache:<original provider>}.
+ */
+class CachingAIService implements AIService {
+    
+    private static final TypeReference<String> TEXT = new TypeReference<>() {};
+    private static final TypeReference<List<String>> TEXT_LIST = new TypeReference<>() {};
+    private static final TypeReference<IncidentAnalysis> ANALYSIS = new TypeReference<>() {};
+    
+    static final String CACHED_PROVIDER_PREFIX = "cache:";
+    
+    private final AIService delegate;
+    private final AIResponseCache cache;
+    private final String providers;
+    
+    CachingAIService(AIService delegate, AIResponseCache cache, String providers) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.providers = providers;
+    }
+    
+    @Override
+    public String generateRootCauseExplanation(List<DataQualityCheck> checks, String tableName, String classification) {
+        String key = cache.fingerprint("root_cause", providers, checks, tableName, classification);
+        return cache.get(key, TEXT, () -> delegate.generateRootCauseExplanation(checks, tableName, classification));
+    }
+    
+    @Override
+    public List<String> generateRemediations(List<DataQualityCheck> checks, String classification, String rootCauseExplanation) {
+        String key = cache.fingerprint("remediations", providers, checks, classification, rootCauseExplanation);
+        return cache.get(key, TEXT_LIST, () -> delegate.generateRemediations(checks, classification, rootCauseExplanation));
+    }
+    
+    @Override
+    public String classifyIncident(List<DataQualityCheck> checks) {
+        String key = cache.fingerprint("classification", providers, checks);
+        return cache.get(key, TEXT, () -> delegate.classifyIncident(checks));
+    }
+    
+    @Override
+    public IncidentAnalysis analyzeIncident(List<DataQualityCheck> checks, String tableName) {
+        String key = cache.fingerprint("analysis", providers, checks, tableName);
+        AtomicBoolean loaded = new AtomicBoolean();
+        IncidentAnalysis analysis = cache.get(key, ANALYSIS, () -> {
+            loaded.set(true);
+            return delegate.analyzeIncident(checks, tableName);
+        });
+        return loaded.get() ? analysis : fromCache(analysis);
+    }
+    
+    @Override
+    public IncidentAnalysis analyzeIncidentStreaming(List<DataQualityCheck> checks, String tableName,
+                                                     Consumer<String> onClassification) {
+        // Shares entries with analyzeIncident; a hit needs no early classification
+        String key = cache.fingerprint("analysis", providers, checks, tableName);
+        AtomicBoolean loaded = new AtomicBoolean();
+        IncidentAnalysis analysis = cache.get(key, ANALYSIS, () -> {
+            loaded.set(true);
+            return delegate.analyzeIncidentStreaming(checks, tableName, onClassification);
+        });
+        return loaded.get() ? analysis : fromCache(analysis);
+    }
+    
+    /**
+     * Serve cached incidents directly and send only the misses as a batch.
+     * Entries share keys with {@link #analyzeIncident}.
+     */
+    @Override
+    public Map<String, IncidentAnalysis> analyzeIncidents(Map<String, List<DataQualityCheck>> incidents) {
+        Map<String, IncidentAnalysis> analyses = new LinkedHashMap<>();
+        Map<String, List<DataQualityCheck>> misses = new LinkedHashMap<>();
+        Map<String, String> keys = new LinkedHashMap<>();
+        incidents.forEach((id, checks) -> {
+            String key = cache.fingerprint("analysis", providers, checks, checks.get(0).getTableName());
+            IncidentAnalysis cached = cache.getIfPresent(key, ANALYSIS);
+            if (cached != null) {
+                analyses.put(id, fromCache(cached));
+            } else {
+                misses.put(id, checks);
+                keys.put(id, key);
+            }
+        });
+        
+        if (!misses.isEmpty()) {
+            delegate.analyzeIncidents(misses).forEach((id, analysis) -> {
+                if (keys.containsKey(id)) {
+                    cache.put(keys.get(id), analysis);
+                    analyses.put(id, analysis);
+                }
+            });
+        }
+        return analyses;
+    }
+    
+    /** A copy of a cached analysis that reports where it came from; the cached instance is shared. */
+    private static IncidentAnalysis fromCache(IncidentAnalysis cached) {
+        if (cached == null) {
+            return null;
+        }
+        String provider = cached.getProvider() != null ? cached.getProvider() : "unknown";
+        return new IncidentAnalysis(cached.getClassification(), cached.getRootCauseExplanation(),
+                cached.getRecommendedRemediations(), CACHED_PROVIDER_PREFIX + provider);
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
@@ -0,0 +1,167 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gathers incidents for up to {@code max-wait} or {@code max-size} incidents
+ * and analyzes them with one structured provider request, so a burst costs
+ * one call and one system prompt instead of one per incident. Incidents the
+ * batch answer does not cover are analyzed on their own.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentBatcher {
+
+    private final AIServiceProvider aiServiceProvider;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aiops.batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aiops.batching.max-size:5}")
+    private int maxSize;
+
+    @Value("${aiops.batching.max-wait:PT2S}")
+    private Duration maxWait;
+
+    @Value("${ai.router.call-timeout:PT35S}")
+    private Duration callTimeout;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object lock = new Object();
+    private Map<String, PendingIncident> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private ScheduledExecutorService executor;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "incident-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batchSizes = DistributionSummary.builder("aiops.batch.size").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        executor.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled && aiServiceProvider.hasRemoteProviders();
+    }
+
+    /**
+     * Analyze an incident as part of the next batch, blocking until the
+     * batch is answered. Falls back to a single-incident request when the
+     * batch did not produce an analysis for it.
+     */
+    public IncidentAnalysis analyze(List<DataQualityCheck> checks, String tableName) {
+        PendingIncident incident = new PendingIncident("i" + sequence.incrementAndGet(), checks);
+        Map<String, PendingIncident> full = null;
+        synchronized (lock) {
+            pending.put(incident.id, incident);
+            if (pending.size() >= maxSize) {
+                full = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::flush, maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            Map<String, PendingIncident> batch = full;
+            executor.execute(() -> process(batch));
+        }
+
+        IncidentAnalysis analysis = null;
+        try {
+            analysis = incident.result.get(maxWait.plus(callTimeout).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Batched analysis did not complete for {}", tableName);
+        }
+
+        if (analysis == null) {
+            // Per-incident fallback: its own request, which degrades to rules if needed
+            analysis = aiServiceProvider.getAIService().analyzeIncident(checks, tableName);
+        }
+        return analysis;
+    }
+
+    private void flush() {
+        Map<String, PendingIncident> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            process(batch);
+        }
+    }
+
+    private Map<String, PendingIncident> takePending() {
+        Map<String, PendingIncident> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void process(Map<String, PendingIncident> batch) {
+        batchSizes.record(batch.size());
+        Map<String, IncidentAnalysis> analyses = Map.of();
+        try {
+            Map<String, List<DataQualityCheck>> incidents = new LinkedHashMap<>();
+            batch.forEach((id, incident) -> incidents.put(id, incident.checks));
+            analyses = aiServiceProvider.getAIService().analyzeIncidents(incidents);
+        } catch (Exception e) {
+            log.error("Error analyzing batch of {} incidents", batch.size(), e);
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, PendingIncident> entry : batch.entrySet()) {
+            IncidentAnalysis analysis = analyses.get(entry.getKey());
+            if (analysis == null) {
+                missing.add(entry.getKey());
+            }
+            entry.getValue().result.complete(analysis);
+        }
+        if (!missing.isEmpty()) {
+            log.warn("Batch answer missing {} of {} incidents, analyzing them individually", missing.size(), batch.size());
+        }
+    }
+
+    private static class PendingIncident {
+        private final String id;
+        private final List<DataQualityCheck> checks;
+        private final CompletableFuture<IncidentAnalysis> result = new CompletableFuture<>();
+
+        PendingIncident(String id, List<DataQualityCheck> checks) {
+            this.id = id;
+            this.checks = checks;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Correlates failed checks into incidents. Failures are grouped by
+ * correlation key and an incident is opened once {@code threshold} of them
+ * fall within a sliding {@code window} of check time. With
+ * {@code group-by: TABLE} all check types of a table share one key, so a
+ * table failing several checks at once becomes a single incident;
+ * {@code TABLE_AND_CHECK_TYPE} keeps one incident per check type.
+ *
+ * <p>Memory is bounded: each key keeps at most {@code max-checks-per-key}
+ * checks, keys idle for longer than the window are swept, and when
+ * {@code max-keys} is reached the least recently updated key is evicted.
+ * All state changes go through {@link ConcurrentHashMap#compute}, so several
+ * listener threads can feed the correlator.
+ *
+ * <p>Windows live only in memory, and the records that fed a window are
+ * acknowledged without waiting for it to fill, so a restart drops the
+ * failures buffered so far. Holding those acknowledgements instead would
+ * stall the consumer for up to a window, since async acks pause it until
+ * every record of the previous poll is acknowledged. A failure that persists
+ * keeps being reported: the data quality service re-announces it every
+ * {@code dq.emission.heartbeat-interval}, which is kept short enough that
+ * {@code threshold} heartbeats of one series fall within {@code window} and
+ * open the incident again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentCorrelator {
+
+    public enum GroupBy {
+        TABLE,
+        TABLE_AND_CHECK_TYPE
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    @Value("${aiops.correlation.group-by:TABLE}")
+    private GroupBy groupBy;
+
+    @Value("${aiops.correlation.window:PT15M}")
+    private Duration window;
+
+    @Value("${aiops.correlation.threshold:3}")
+    private int threshold;
+
+    @Value("${aiops.correlation.max-keys:10000}")
+    private int maxKeys;
+
+    @Value("${aiops.correlation.max-checks-per-key:100}")
+    private int maxChecksPerKey;
+
+    private Counter evictedKeys;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("aiops.correlation.keys", windows, Map::size).register(meterRegistry);
+        evictedKeys = Counter.builder("aiops.correlation.evicted").register(meterRegistry);
+    }
+
+    /**
+     * Add a failed check. Returns the correlated checks, oldest first, when
+     * this check completes an incident, otherwise null.
+     */
+    public List<DataQualityCheck> add(DataQualityCheck check) {
+        String key = correlationKey(check);
+        Instant checkTime = check.getTimestamp() != null ? check.getTimestamp() : Instant.now();
+        List<List<DataQualityCheck>> ready = new ArrayList<>(1);
+
+        if (!windows.containsKey(key) && windows.size() >= maxKeys) {
+            evictLeastRecentlyUpdated();
+        }
+
+        windows.compute(key, (k, current) -> {
+            Window w = current != null ? current : new Window();
+            w.add(check, checkTime, window, maxChecksPerKey);
+            if (w.checks.size() >= threshold) {
+                ready.add(new ArrayList<>(w.checks));
+                return null;
+            }
+            return w;
+        });
+
+        return ready.isEmpty() ? null : ready.get(0);
+    }
+
+    String correlationKey(DataQualityCheck check) {
+        return groupBy == GroupBy.TABLE
+                ? check.getTableName()
+                : check.getTableName() + "_" + check.getCheckType();
+    }
+
+    private void evictLeastRecentlyUpdated() {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            if (entry.getValue().lastUpdatedMillis < oldest) {
+                oldest = entry.getValue().lastUpdatedMillis;
+                oldestKey = entry.getKey();
+            }
+        }
+        if (oldestKey != null && windows.remove(oldestKey) != null) {
+            evictedKeys.increment();
+            log.warn("Correlation key limit {} reached, evicted {}", maxKeys, oldestKey);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aiops.correlation.sweep-interval-ms:60000}")
+    public void sweepIdleKeys() {
+        long cutoff = System.currentTimeMillis() - window.toMillis();
+        int before = windows.size();
+        windows.values().removeIf(w -> w.lastUpdatedMillis < cutoff);
+        int swept = before - windows.size();
+        if (swept > 0) {
+            evictedKeys.increment(swept);
+            log.debug("Swept {} idle correlation keys", swept);
+        }
+    }
+
+    private static class Window {
+        private final Deque<DataQualityCheck> checks = new ArrayDeque<>();
+        private final Deque<Instant> times = new ArrayDeque<>();
+        private long lastUpdatedMillis;
+
+        void add(DataQualityCheck check, Instant checkTime, Duration window, int maxChecks) {
+            checks.addLast(check);
+            times.addLast(checkTime);
+            lastUpdatedMillis = System.currentTimeMillis();
+
+            // Slide the window relative to the newest check time seen for this key
+            Instant newest = times.stream().max(Instant::compareTo).orElse(checkTime);
+            Instant cutoff = newest.minus(window);
+            while (!times.isEmpty() && (times.peekFirst().isBefore(cutoff) || checks.size() > maxChecks)) {
+                times.removeFirst();
+                checks.removeFirst();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+
+import java.util.List;
+
+/**
+ * Severity of an incident from its checks. Known before any AI call, so it
+ * also sets the priority of the incident's provider requests.
+ * <p>
+ * Graded by the worst check: more than 50% off, or at least 4x its fail
+ * threshold, is CRITICAL; 2x is HIGH; 1.25x is MEDIUM; a narrower miss is
+ * LOW. Incidents whose checks carry no value or threshold stay HIGH.
+ */
+final class IncidentSeverities {
+    
+    private IncidentSeverities() {
+    }
+    
+    static IncidentSeverity assess(List<DataQualityCheck> checks) {
+        boolean measured = false;
+        double worstRatio = 0;
+        for (DataQualityCheck check : checks) {
+            Double actual = check.getActualValue();
+            if (actual == null) {
+                continue;
+            }
+            if (actual > 50) {
+                return IncidentSeverity.CRITICAL;
+            }
+            Double threshold = check.getThreshold();
+            if (threshold != null && threshold > 0) {
+                measured = true;
+                worstRatio = Math.max(worstRatio, actual / threshold);
+            }
+        }
+        if (!measured) {
+            return IncidentSeverity.HIGH;
+        }
+        if (worstRatio >= 4) {
+            return IncidentSeverity.CRITICAL;
+        }
+        if (worstRatio >= 2) {
+            return IncidentSeverity.HIGH;
+        }
+        return worstRatio >= 1.25 ? IncidentSeverity.MEDIUM : IncidentSeverity.LOW;
+    }
+}
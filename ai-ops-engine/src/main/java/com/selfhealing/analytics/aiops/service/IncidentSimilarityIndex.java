@@ -0,0 +1,317 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory MinHash/LSH index over the check features of resolved incidents.
+ * An incoming incident whose features are close enough (exact Jaccard at or
+ * above {@code threshold}) to a resolved one reuses that incident's confirmed
+ * analysis instead of calling a provider: the operator's resolution notes
+ * lead the root cause, followed by the explanation the incident was stored with.
+ * <p>
+ * Signatures have {@code BANDS * ROWS} MinHash values; two incidents become
+ * candidates when any band of {@code ROWS} values matches. With 16 bands of 4
+ * rows a pair at Jaccard 0.8 is a candidate with probability above 0.99, and
+ * one at 0.3 with probability under 0.13, so most of the store is never compared.
+ * <p>
+ * The index is filled from the incident store's resolved-incidents feed and
+ * refreshed incrementally on a schedule.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentSimilarityIndex {
+
+    static final String PROVIDER_NAME = "IncidentHistory";
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final long[] SEEDS = seeds(BANDS * ROWS);
+
+    private final WebClient.Builder webClientBuilder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aiops.similarity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aiops.similarity.threshold:0.8}")
+    private double threshold;
+
+    @Value("${aiops.similarity.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${aiops.incident-store.base-url:http://localhost:8087}")
+    private String incidentStoreUrl;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+    private final Deque<String> insertionOrder = new ArrayDeque<>();
+    /** Position in the resolved feed: the last (resolved_at, incident_id) indexed. */
+    private volatile Instant resolvedSince = Instant.EPOCH;
+    private volatile String resolvedAfterId = "";
+
+    private WebClient webClient;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder.baseUrl(incidentStoreUrl).build();
+        hits = meterRegistry.counter("aiops.similarity.lookups", "outcome", "hit");
+        misses = meterRegistry.counter("aiops.similarity.lookups", "outcome", "miss");
+        Gauge.builder("aiops.similarity.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Features an incident is compared on: its tables, check types, columns
+     * and how far each check missed its threshold. Stored with the incident
+     * so resolved incidents can be indexed later.
+     */
+    public static List<String> features(List<DataQualityCheck> checks) {
+        Set<String> features = new TreeSet<>();
+        for (DataQualityCheck check : checks) {
+            String table = check.getTableName();
+            String type = check.getCheckType().name();
+            features.add("table:" + table);
+            features.add("check:" + type);
+            features.add("table_check:" + table + "|" + type);
+            Object column = check.getDetails() != null ? check.getDetails().get("column_name") : null;
+            if (column != null) {
+                features.add("column:" + table + "." + column);
+            }
+            features.add("magnitude:" + type + "|" + magnitudeBucket(check));
+        }
+        return new ArrayList<>(features);
+    }
+
+    private static int magnitudeBucket(DataQualityCheck check) {
+        if (check.getActualValue() == null || check.getThreshold() == null || check.getThreshold() <= 0) {
+            return -1;
+        }
+        double ratio = check.getActualValue() / check.getThreshold();
+        // Powers of two: within 2x of the threshold, 2-4x, 4-8x, 8x and more
+        return (int) Math.max(0, Math.min(3, Math.floor(Math.log(ratio) / Math.log(2))));
+    }
+
+    /**
+     * The most similar resolved incident at or above the threshold, or null.
+     */
+    public Match findSimilar(List<String> features) {
+        if (!enabled || entries.isEmpty() || features.isEmpty()) {
+            return null;
+        }
+        Set<String> featureSet = new HashSet<>(features);
+        long[] signature = signature(featureSet);
+
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        Match best = null;
+        for (String candidateId : candidates) {
+            Entry entry = entries.get(candidateId);
+            if (entry == null) {
+                continue;
+            }
+            double similarity = jaccard(featureSet, entry.features);
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match(entry.incidentId, similarity, entry.analysis);
+            }
+        }
+        (best != null ? hits : misses).increment();
+        return best;
+    }
+
+    @Scheduled(initialDelayString = "${aiops.similarity.initial-delay:PT10S}",
+               fixedDelayString = "${aiops.similarity.refresh-interval:PT5M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int added = 0;
+            int page;
+            do {
+                JsonNode resolved = webClient.get()
+                        .uri(uri -> uri.path("/api/incidents/resolved")
+                                .queryParam("since", resolvedSince.toString())
+                                .queryParam("after_id", resolvedAfterId)
+                                .queryParam("limit", 500)
+                                .build())
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .block(Duration.ofSeconds(30));
+                page = resolved != null ? resolved.size() : 0;
+                for (int i = 0; i < page; i++) {
+                    JsonNode incident = resolved.get(i);
+                    if (index(incident)) {
+                        added++;
+                    }
+                    resolvedSince = Instant.parse(incident.get("resolved_at").asText());
+                    resolvedAfterId = incident.get("incident_id").asText();
+                }
+            } while (page == 500);
+            if (added > 0) {
+                log.info("Indexed {} resolved incidents ({} total)", added, entries.size());
+            }
+        } catch (Exception e) {
+            log.warn("Could not refresh incident similarity index from {}: {}", incidentStoreUrl, e.getMessage());
+        }
+    }
+
+    private boolean index(JsonNode incident) {
+        JsonNode featureNodes = incident.path("metadata").path("check_features");
+        if (!featureNodes.isArray() || featureNodes.isEmpty()) {
+            // Incidents from before features were recorded cannot be matched
+            return false;
+        }
+        Set<String> features = new HashSet<>();
+        featureNodes.forEach(node -> features.add(node.asText()));
+
+        List<String> remediations = new ArrayList<>();
+        incident.path("recommended_remediations").forEach(node -> remediations.add(node.asText()));
+        IncidentAnalysis analysis = new IncidentAnalysis(
+                incident.path("classification").asText(null),
+                confirmedRootCause(incident),
+                remediations);
+        analysis.setProvider(PROVIDER_NAME);
+
+        add(new Entry(incident.get("incident_id").asText(), features, signature(features), analysis));
+        return true;
+    }
+
+    private static String confirmedRootCause(JsonNode incident) {
+        String explanation = incident.path("root_cause_explanation").asText(null);
+        String notes = incident.path("resolution_notes").asText("").strip();
+        if (notes.isEmpty()) {
+            return explanation;
+        }
+        return explanation == null || explanation.isBlank()
+                ? "Confirmed at resolution: " + notes
+                : "Confirmed at resolution: " + notes + "\n\n" + explanation;
+    }
+
+    private synchronized void add(Entry entry) {
+        remove(entry.incidentId);
+        entries.put(entry.incidentId, entry);
+        insertionOrder.addLast(entry.incidentId);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bandKey(entry.signature, band), key -> ConcurrentHashMap.newKeySet())
+                   .add(entry.incidentId);
+        }
+        while (entries.size() > maxEntries && !insertionOrder.isEmpty()) {
+            remove(insertionOrder.pollFirst());
+        }
+    }
+
+    private void remove(String incidentId) {
+        Entry existing = entries.remove(incidentId);
+        if (existing == null) {
+            return;
+        }
+        insertionOrder.remove(incidentId);
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(existing.signature, band);
+            Set<String> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(incidentId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    static long[] signature(Set<String> features) {
+        long[] signature = new long[SEEDS.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String feature : features) {
+            long hash = fnv1a(feature);
+            for (int i = 0; i < SEEDS.length; i++) {
+                long value = mix(hash ^ SEEDS[i]);
+                if (Long.compareUnsigned(value, signature[i]) < 0) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = mix(key * 31 + signature[band * ROWS + row]);
+        }
+        return key;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        int intersection = 0;
+        for (String feature : a) {
+            if (b.contains(feature)) {
+                intersection++;
+            }
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long[] seeds(int count) {
+        long[] seeds = new long[count];
+        long state = 0x5DEECE66DL;
+        for (int i = 0; i < count; i++) {
+            state += 0x9e3779b97f4a7c15L;
+            seeds[i] = mix(state);
+        }
+        return seeds;
+    }
+
+    /** A resolved incident similar enough to reuse its analysis. */
+    public record Match(String incidentId, double similarity, IncidentAnalysis analysis) {
+    }
+
+    private record Entry(String incidentId, Set<String> features, long[] signature, IncidentAnalysis analysis) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Local copy of the lineage-service table/job graph, refreshed on a schedule.
+ * Lookups never call lineage-service; until the first refresh succeeds (or
+ * when it is unreachable) the graph is empty and every table stands alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LineageGraphCache {
+
+    private final WebClient.Builder webClientBuilder;
+
+    @Value("${aiops.lineage.base-url:http://localhost:8085}")
+    private String lineageServiceUrl;
+
+    private WebClient webClient;
+    private volatile Graph graph = new Graph(Set.of(), Map.of(), Map.of());
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder.baseUrl(lineageServiceUrl).build();
+    }
+
+    @Scheduled(initialDelayString = "${aiops.lineage.initial-delay:PT5S}",
+               fixedDelayString = "${aiops.lineage.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            JsonNode response = webClient.get()
+                    .uri("/api/lineage/graph")
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block(Duration.ofSeconds(30));
+            if (response == null) {
+                return;
+            }
+
+            Set<String> tables = new HashSet<>();
+            response.path("nodes").forEach(node -> {
+                if ("Table".equals(node.path("type").asText())) {
+                    tables.add(node.path("name").asText());
+                }
+            });
+            Map<String, Set<String>> downstream = new HashMap<>();
+            Map<String, Set<String>> upstream = new HashMap<>();
+            response.path("edges").forEach(edge -> {
+                String source = edge.path("source").asText();
+                String target = edge.path("target").asText();
+                downstream.computeIfAbsent(source, key -> new HashSet<>()).add(target);
+                upstream.computeIfAbsent(target, key -> new HashSet<>()).add(source);
+            });
+
+            graph = new Graph(tables, downstream, upstream);
+            log.debug("Refreshed lineage graph: {} tables, {} edges", tables.size(), response.path("edges").size());
+        } catch (Exception e) {
+            log.warn("Could not refresh lineage graph from {}: {}", lineageServiceUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * Every table and job that reads, directly or transitively, from
+     * {@code table}, nearest first.
+     */
+    public List<String> downstreamOf(String table) {
+        Graph current = graph;
+        return current.walk(table, current.downstream);
+    }
+
+    /**
+     * Tables that {@code table} depends on, directly or transitively, nearest first.
+     */
+    public List<String> upstreamTablesOf(String table) {
+        Graph current = graph;
+        return current.walk(table, current.upstream).stream()
+                .filter(current.tables::contains)
+                .toList();
+    }
+
+    private record Graph(Set<String> tables, Map<String, Set<String>> downstream, Map<String, Set<String>> upstream) {
+
+        List<String> walk(String start, Map<String, Set<String>> edges) {
+            List<String> reached = new ArrayList<>();
+            Set<String> seen = new HashSet<>(Set.of(start));
+            Deque<String> queue = new ArrayDeque<>(List.of(start));
+            while (!queue.isEmpty()) {
+                for (String next : edges.getOrDefault(queue.poll(), Set.of())) {
+                    if (seen.add(next)) {
+                        reached.add(next);
+                        queue.add(next);
+                    }
+                }
+            }
+            return reached;
+        }
+    }
+}
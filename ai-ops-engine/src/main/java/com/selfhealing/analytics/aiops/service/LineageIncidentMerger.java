@@ -0,0 +1,230 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.selfhealing.analytics.common.model.Incident;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Folds downstream symptoms of a cascading failure into the incident opened
+ * for the upstream table. An incident on a table with lineage dependents stays
+ * open for merging for {@code merge-window} after it was opened or last
+ * absorbed a symptom; a later incident on any table downstream of it is
+ * folded in instead of being analyzed on its own.
+ * <p>
+ * A root stops accepting symptoms when its analysis fails (symptoms folded
+ * while it ran are then analyzed on their own) or once it shows up as
+ * resolved in the incident store, which is polled every
+ * {@code resolved-poll-interval}. The store also refuses folds into resolved
+ * incidents, so a symptom folded before the poll catches up is not lost from
+ * a closed incident but does not reopen or rewrite it either.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LineageIncidentMerger {
+
+    private final LineageGraphCache lineageGraph;
+    private final MeterRegistry meterRegistry;
+    private final WebClient.Builder webClientBuilder;
+
+    @Value("${aiops.lineage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aiops.lineage.merge-window:PT30M}")
+    private Duration mergeWindow;
+
+    @Value("${aiops.incident-store.base-url:http://localhost:8087}")
+    private String incidentStoreUrl;
+
+    private final Map<String, RootIncident> openRoots = new ConcurrentHashMap<>();
+    /** Position in the resolved feed: the last (resolved_at, incident_id) seen. */
+    private volatile Instant resolvedSince;
+    private volatile String resolvedAfterId = "";
+
+    private WebClient webClient;
+    private Counter folded;
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder.baseUrl(incidentStoreUrl).build();
+        // Only roots opened by this process are tracked; older resolves cannot close any of them
+        resolvedSince = Instant.now().minus(mergeWindow);
+        folded = Counter.builder("aiops.lineage.folded")
+                .description("Downstream incidents folded into an open upstream incident")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The open incident on the furthest upstream table of {@code table}, or
+     * null when none of its upstream tables has one.
+     */
+    public RootIncident findOpenUpstream(String table) {
+        if (!enabled) {
+            return null;
+        }
+        Instant now = Instant.now();
+        List<String> upstream = lineageGraph.upstreamTablesOf(table);
+        for (int i = upstream.size() - 1; i >= 0; i--) {
+            RootIncident root = openRoots.get(upstream.get(i));
+            if (root != null && root.expiresAt.isAfter(now)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a new incident so downstream symptoms can fold into it.
+     * Returns null for tables nothing depends on.
+     */
+    public RootIncident open(String table, String incidentId) {
+        if (!enabled || lineageGraph.downstreamOf(table).isEmpty()) {
+            return null;
+        }
+        RootIncident root = new RootIncident(incidentId, table, Instant.now().plus(mergeWindow));
+        openRoots.put(table, root);
+        return root;
+    }
+
+    /**
+     * Record how the root's own analysis ended. A failed root is dropped, so
+     * nothing folds into an incident that was never emitted.
+     */
+    public void settle(RootIncident root, Throwable error) {
+        if (error != null) {
+            openRoots.remove(root.table, root);
+            root.outcome.completeExceptionally(error);
+        } else {
+            root.outcome.complete(null);
+        }
+    }
+
+    /**
+     * Stop folding into an incident that was resolved in the incident store,
+     * so later symptoms open an incident of their own instead of updating a
+     * closed one.
+     */
+    private void closeResolved(String incidentId) {
+        openRoots.values().removeIf(root -> root.incidentId.equals(incidentId));
+    }
+
+    /**
+     * Components an incident on {@code table} affects beyond its own checks:
+     * every downstream job and table.
+     */
+    public List<String> downstreamComponents(String table) {
+        return enabled ? lineageGraph.downstreamOf(table) : List.of();
+    }
+
+    /**
+     * Record a downstream symptom on {@code root}. Callers hold the root's
+     * monitor so the fold and the incident it updates are emitted together.
+     */
+    void fold(RootIncident root, String table, int checkCount, IncidentSeverity severity) {
+        root.foldedTables.add(table);
+        root.foldedChecks += checkCount;
+        if (root.severity == null || severity.ordinal() < root.severity.ordinal()) {
+            root.severity = severity;
+        }
+        root.expiresAt = Instant.now().plus(mergeWindow);
+        folded.increment();
+        log.info("Folded incident on {} into upstream incident {} on {}", table, root.incidentId, root.table);
+    }
+
+    /**
+     * Read incidents resolved since the last poll from the incident store and
+     * close the roots among them.
+     */
+    @Scheduled(initialDelayString = "${aiops.lineage.resolved-poll-interval:PT30S}",
+               fixedDelayString = "${aiops.lineage.resolved-poll-interval:PT30S}")
+    public void pollResolved() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int page;
+            do {
+                JsonNode resolved = webClient.get()
+                        .uri(uri -> uri.path("/api/incidents/resolved")
+                                .queryParam("since", resolvedSince.toString())
+                                .queryParam("after_id", resolvedAfterId)
+                                .queryParam("limit", 500)
+                                .build())
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .block(Duration.ofSeconds(30));
+                page = resolved != null ? resolved.size() : 0;
+                for (int i = 0; i < page; i++) {
+                    JsonNode incident = resolved.get(i);
+                    closeResolved(incident.get("incident_id").asText());
+                    resolvedSince = Instant.parse(incident.get("resolved_at").asText());
+                    resolvedAfterId = incident.get("incident_id").asText();
+                }
+            } while (page == 500);
+        } catch (Exception e) {
+            log.warn("Could not poll resolved incidents from {}: {}", incidentStoreUrl, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aiops.lineage.sweep-interval:PT1M}")
+    public void sweep() {
+        Instant now = Instant.now();
+        openRoots.values().removeIf(root -> !root.expiresAt.isAfter(now));
+    }
+
+    /** An incident still accepting downstream symptoms. Guarded by its own monitor. */
+    @Getter
+    public static class RootIncident {
+        private final String incidentId;
+        private final String table;
+        private volatile Instant expiresAt;
+        private final Set<String> foldedTables = new LinkedHashSet<>();
+        private int foldedChecks;
+        private IncidentSeverity severity;
+        /** The complete incident once analyzed; null while analysis is running. */
+        private Incident incident;
+        /** Completes when the root's own incident is emitted, or fails when it never will be. */
+        private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+
+        RootIncident(String incidentId, String table, Instant expiresAt) {
+            this.incidentId = incidentId;
+            this.table = table;
+            this.expiresAt = expiresAt;
+        }
+
+        void setIncident(Incident incident) {
+            this.incident = incident;
+        }
+
+        /** Apply the symptoms folded so far to the complete incident. */
+        void applyFolds(Incident target) {
+            if (foldedTables.isEmpty()) {
+                return;
+            }
+            Set<String> components = new LinkedHashSet<>(target.getAffectedComponents());
+            components.addAll(foldedTables);
+            target.setAffectedComponents(new ArrayList<>(components));
+            if (severity != null && severity.ordinal() < target.getSeverity().ordinal()) {
+                target.setSeverity(severity);
+            }
+            target.getMetadata().put("merged_tables", new ArrayList<>(foldedTables));
+            target.getMetadata().put("merged_check_count", foldedChecks);
+        }
+    }
+}
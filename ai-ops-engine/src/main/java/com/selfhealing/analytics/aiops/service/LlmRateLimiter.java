@@ -0,0 +1,200 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Requests-per-minute and tokens-per-minute budgets per AI provider.
+ *
+ * <p>Both budgets are token buckets refilled continuously. Lower severities
+ * must leave part of each bucket untouched ({@code reserve-fraction} for
+ * HIGH, twice that for MEDIUM, three times for LOW), so during a storm the
+ * remaining headroom goes to CRITICAL incidents. A CRITICAL request may
+ * also wait up to {@code critical-max-wait} for the buckets to refill;
+ * everything else is refused immediately and takes the rule-based path.
+ *
+ * <p>Limits come from {@code ai.rate-limit.<provider>.requests-per-minute}
+ * and {@code .tokens-per-minute}, where {@code <provider>} is the lower-cased
+ * service name without the "Service" suffix (openai, anthropic). A limit of
+ * 0 disables that budget.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LlmRateLimiter {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderBudget> budgets = new ConcurrentHashMap<>();
+
+    @Value("${ai.rate-limit.reserve-fraction:0.2}")
+    private double reserveFraction;
+
+    @Value("${ai.rate-limit.critical-max-wait:PT5S}")
+    private Duration criticalMaxWait;
+
+    /**
+     * Estimated tokens of a request: about four characters per prompt token
+     * plus the response limit.
+     */
+    static int estimateTokens(String prompt, int maxTokens) {
+        return prompt.length() / 4 + maxTokens;
+    }
+
+    /**
+     * Take one request and {@code tokens} tokens from the provider's budget.
+     * Returns false when the budget cannot cover the request at this
+     * severity, in which case nothing is taken.
+     */
+    public boolean tryAcquire(String provider, IncidentSeverity severity, int tokens, boolean allowWait) {
+        ProviderBudget budget = budgets.computeIfAbsent(provider, this::createBudget);
+        double reserve = reserveFor(severity);
+        long deadline = System.nanoTime()
+                + (allowWait && severity == IncidentSeverity.CRITICAL ? criticalMaxWait.toNanos() : 0);
+
+        while (true) {
+            long waitNanos = budget.tryTake(tokens, reserve);
+            if (waitNanos == 0) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (waitNanos < 0 || remaining <= 0) {
+                meterRegistry.counter("ai.rate.limit.rejected", "provider", provider, "severity", severity.name())
+                             .increment();
+                log.debug("{} budget exhausted for {} request of ~{} tokens", provider, severity, tokens);
+                return false;
+            }
+            try {
+                Thread.sleep(Math.max(1, Math.min(waitNanos, remaining) / 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Return a reservation that was not used, e.g. when the provider's
+     * circuit breaker refused the call after the budget was taken.
+     */
+    public void release(String provider, int tokens) {
+        ProviderBudget budget = budgets.get(provider);
+        if (budget != null) {
+            budget.giveBack(tokens);
+        }
+    }
+
+    private double reserveFor(IncidentSeverity severity) {
+        switch (severity) {
+            case CRITICAL:
+                return 0;
+            case HIGH:
+                return Math.min(0.9, reserveFraction);
+            case MEDIUM:
+                return Math.min(0.9, reserveFraction * 2);
+            default:
+                return Math.min(0.9, reserveFraction * 3);
+        }
+    }
+
+    private ProviderBudget createBudget(String provider) {
+        String key = provider.toLowerCase().replaceAll("service$", "");
+        int rpm = environment.getProperty("ai.rate-limit." + key + ".requests-per-minute", Integer.class, 0);
+        int tpm = environment.getProperty("ai.rate-limit." + key + ".tokens-per-minute", Integer.class, 0);
+        ProviderBudget budget = new ProviderBudget(rpm, tpm);
+        Gauge.builder("ai.rate.limit.requests.available", budget, ProviderBudget::availableRequests)
+             .tag("provider", provider)
+             .register(meterRegistry);
+        Gauge.builder("ai.rate.limit.tokens.available", budget, ProviderBudget::availableTokens)
+             .tag("provider", provider)
+             .register(meterRegistry);
+        log.info("Rate limits for {}: {} requests/min, {} tokens/min", provider,
+                rpm > 0 ? rpm : "unlimited", tpm > 0 ? tpm : "unlimited");
+        return budget;
+    }
+
+    private static class ProviderBudget {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+
+        ProviderBudget(int requestsPerMinute, int tokensPerMinute) {
+            this.requests = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute) : null;
+            this.tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute) : null;
+        }
+
+        /**
+         * Take from both buckets or neither. Returns 0 on success, the
+         * nanoseconds until the request could fit, or -1 if it never can.
+         */
+        synchronized long tryTake(int tokenCount, double reserve) {
+            long now = System.nanoTime();
+            long requestWait = requests != null ? requests.nanosUntil(1, reserve, now) : 0;
+            long tokenWait = tokens != null ? tokens.nanosUntil(tokenCount, reserve, now) : 0;
+            if (requestWait < 0 || tokenWait < 0) {
+                return -1;
+            }
+            if (requestWait > 0 || tokenWait > 0) {
+                return Math.max(requestWait, tokenWait);
+            }
+            if (requests != null) {
+                requests.level -= 1;
+            }
+            if (tokens != null) {
+                tokens.level -= tokenCount;
+            }
+            return 0;
+        }
+
+        synchronized void giveBack(int tokenCount) {
+            if (requests != null) {
+                requests.level = Math.min(requests.capacity, requests.level + 1);
+            }
+            if (tokens != null) {
+                tokens.level = Math.min(tokens.capacity, tokens.level + tokenCount);
+            }
+        }
+
+        synchronized double availableRequests() {
+            return requests != null ? requests.level : -1;
+        }
+
+        synchronized double availableTokens() {
+            return tokens != null ? tokens.level : -1;
+        }
+    }
+
+    private static class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double level;
+        private long refilledAt;
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / 60_000_000_000.0;
+            this.level = perMinute;
+            this.refilledAt = System.nanoTime();
+        }
+
+        long nanosUntil(double amount, double reserve, long now) {
+            level = Math.min(capacity, level + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+            double needed = amount + reserve * capacity;
+            if (needed > capacity) {
+                return -1;
+            }
+            return level >= needed ? 0 : (long) Math.ceil((needed - level) / refillPerNano);
+        }
+    }
+}
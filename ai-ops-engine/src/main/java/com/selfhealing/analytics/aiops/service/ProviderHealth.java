@@ -0,0 +1,157 @@
+package com.selfhealing.analytics.aiops.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Circuit breaker and latency statistics for one AI provider.
+ *
+ * <p>The breaker opens when at least {@code minimumCalls} of the last
+ * {@code windowSize} calls were made and the failure rate among them reaches
+ * {@code failureRateThreshold}. After {@code openDuration} a single trial call
+ * is let through (HALF_OPEN); its outcome closes or re-opens the breaker.
+ * Latency is tracked as an EWMA and as a p95 over the last 100 successful calls.
+ */
+class ProviderHealth {
+
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private static final int LATENCY_SAMPLES = 100;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeIndex;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private int latencyIndex;
+    private double ewmaMillis = -1;
+
+    ProviderHealth(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * Whether a call may be made now. In HALF_OPEN only one trial call is
+     * admitted until its outcome is recorded.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+                || (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos)
+                || (state == State.HALF_OPEN && !trialInFlight);
+    }
+
+    synchronized void recordSuccess(long latencyNanos) {
+        long millis = latencyNanos / 1_000_000;
+        latencies[latencyIndex] = millis;
+        latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+        ewmaMillis = ewmaMillis < 0 ? millis : 0.8 * ewmaMillis + 0.2 * millis;
+
+        if (state == State.HALF_OPEN) {
+            reset();
+        }
+        recordOutcome(false);
+    }
+
+    synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        recordOutcome(true);
+        if (state == State.CLOSED && outcomeCount >= minimumCalls
+                && (double) failures / outcomeCount >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (outcomeCount == windowSize && outcomes[outcomeIndex]) {
+            failures--;
+        }
+        outcomes[outcomeIndex] = failed;
+        if (failed) {
+            failures++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+        outcomeCount = Math.min(outcomeCount + 1, windowSize);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        Arrays.fill(outcomes, false);
+        outcomeCount = 0;
+        outcomeIndex = 0;
+        failures = 0;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Smoothed latency in milliseconds, or 0 before the first success so
+     * untried providers are preferred.
+     */
+    synchronized double getEwmaMillis() {
+        return Math.max(ewmaMillis, 0);
+    }
+
+    /**
+     * p95 latency in milliseconds over recent successes, or -1 with fewer
+     * than 10 samples.
+     */
+    synchronized long getP95Millis() {
+        if (latencyCount < 10) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.95 * latencyCount) - 1];
+    }
+}
@@ -0,0 +1,107 @@
+package com.selfhealing.analytics.aiops.service;
+
+import com.selfhealing.analytics.aiops.model.IncidentAnalysis;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link AIService} view of the provider router: every call is routed by
+ * {@link AIServiceProvider#route}. Returns null when no provider is healthy
+ * or all attempts failed, which sends callers to the rule-based path.
+ * Requests carry the incident's severity and an estimated token count for
+ * rate limiting.
+ */
+class RoutingAIService implements AIService {
+    
+    private final AIServiceProvider router;
+    
+    RoutingAIService(AIServiceProvider router) {
+        this.router = router;
+    }
+    
+    @Override
+    public String generateRootCauseExplanation(List<DataQualityCheck> checks, String tableName, String classification) {
+        return router.route("root_cause", IncidentSeverities.assess(checks), estimateTokens(checks, tableName, 500),
+                s -> s.generateRootCauseExplanation(checks, tableName, classification));
+    }
+    
+    @Override
+    public List<String> generateRemediations(List<DataQualityCheck> checks, String classification, String rootCauseExplanation) {
+        return router.route("remediations", IncidentSeverities.assess(checks), estimateTokens(checks, null, 500),
+                s -> s.generateRemediations(checks, classification, rootCauseExplanation));
+    }
+    
+    @Override
+    public String classifyIncident(List<DataQualityCheck> checks) {
+        return router.route("classification", IncidentSeverities.assess(checks), estimateTokens(checks, null, 500),
+                s -> s.classifyIncident(checks));
+    }
+    
+    @Override
+    public IncidentAnalysis analyzeIncident(List<DataQualityCheck> checks, String tableName) {
+        IncidentSeverity severity = IncidentSeverities.assess(checks);
+        int tokens = estimateTokens(checks, tableName, AnalysisPrompt.MAX_TOKENS);
+        return router.route("analysis", severity, tokens, s -> {
+            IncidentAnalysis analysis = s.analyzeIncident(checks, tableName);
+            if (analysis != null) {
+                analysis.setProvider(s.getName());
+            }
+            return analysis;
+        });
+    }
+    
+    @Override
+    public IncidentAnalysis analyzeIncidentStreaming(List<DataQualityCheck> checks, String tableName,
+                                                     Consumer<String> onClassification) {
+        IncidentSeverity severity = IncidentSeverities.assess(checks);
+        int tokens = estimateTokens(checks, tableName, AnalysisPrompt.MAX_TOKENS);
+        return router.route("analysis", severity, tokens, s -> {
+            IncidentAnalysis analysis = s.analyzeIncidentStreaming(checks, tableName, onClassification);
+            if (analysis != null) {
+                analysis.setProvider(s.getName());
+            }
+            return analysis;
+        });
+    }
+    
+    @Override
+    public Map<String, IncidentAnalysis> analyzeIncidents(Map<String, List<DataQualityCheck>> incidents) {
+        // The batch is as urgent as its most severe incident
+        IncidentSeverity severity = incidents.values().stream()
+                .map(IncidentSeverities::assess)
+                .min(Comparator.naturalOrder())
+                .orElse(IncidentSeverity.HIGH);
+        int tokens = LlmRateLimiter.estimateTokens(AnalysisPrompt.buildBatch(incidents),
+                AnalysisPrompt.batchMaxTokens(incidents.size()));
+        Map<String, IncidentAnalysis> analyses = router.route("batch_analysis", severity, tokens, s -> {
+            Map<String, IncidentAnalysis> result = s.analyzeIncidents(incidents);
+            if (result == null || result.isEmpty()) {
+                return null;
+            }
+            result.values().forEach(analysis -> analysis.setProvider(s.getName()));
+            return result;
+        });
+        return analyses != null ? analyses : Map.of();
+    }
+    
+    // All prompts list the checks, so the structured prompt approximates their size
+    private int estimateTokens(List<DataQualityCheck> checks, String tableName, int maxTokens) {
+        String table = tableName != null ? tableName : checks.get(0).getTableName();
+        return LlmRateLimiter.estimateTokens(AnalysisPrompt.build(checks, table), maxTokens);
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return router.hasRemoteProviders();
+    }
+    
+    @Override
+    public String getName() {
+        return "AIServiceRouter";
+    }
+}
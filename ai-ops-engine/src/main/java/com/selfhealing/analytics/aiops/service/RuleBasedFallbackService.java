@@ -48,6 +48,12 @@ public class RuleBasedFallbackService implements AIService {
                     "Upstream systems may have introduced breaking changes without proper migration.",
                     tableName));
                 break;
+            case TYPE_MISMATCH:
+                explanation.append(String.format(
+                    "JSON properties with unexpected value types in table '%s'. " +
+                    "A producer is likely emitting a changed payload format for some event types.",
+                    tableName));
+                break;
             case MISSING_PARTITION:
                 explanation.append(String.format(
                     "missing partition detected for table '%s'. " +
@@ -106,6 +112,7 @@ public class RuleBasedFallbackService implements AIService {
             case ROW_COUNT_ANOMALY:
                 return "DATA_INGESTION_FAILURE";
             case NULL_RATE:
+            case TYPE_MISMATCH:
                 return "DATA_QUALITY_DEGRADATION";
             case SCHEMA_DRIFT:
                 return "SCHEMA_COMPATIBILITY_ISSUE";
@@ -0,0 +1,45 @@
+package com.selfhealing.analytics.dataquality.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class DatabaseConfig implements CommandLineRunner {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public DatabaseConfig(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public void run(String... args) {
+        initializeSchema();
+    }
+    
+    private void initializeSchema() {
+        // Compressed check result history: one row per closed block of a series
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS dq_check_history (
+                series_key VARCHAR(512) NOT NULL,
+                block_start TIMESTAMP WITH TIME ZONE NOT NULL,
+                block_end TIMESTAMP WITH TIME ZONE NOT NULL,
+                point_count INTEGER NOT NULL,
+                min_value DOUBLE PRECISION,
+                max_value DOUBLE PRECISION,
+                data BYTEA NOT NULL,
+                PRIMARY KEY (series_key, block_start)
+            )
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_dq_check_history_block_end 
+            ON dq_check_history(block_end)
+            """);
+        
+        log.info("Data quality history schema initialized");
+    }
+}
@@ -0,0 +1,42 @@
+package com.selfhealing.analytics.dataquality.controller;
+
+import com.selfhealing.analytics.dataquality.service.CheckHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dq/history")
+@RequiredArgsConstructor
+public class CheckHistoryController {
+    
+    private final CheckHistoryService checkHistoryService;
+    
+    @GetMapping("/series")
+    public ResponseEntity<List<String>> getActiveSeries() {
+        return ResponseEntity.ok(checkHistoryService.getActiveSeries());
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getHistory(
+            @RequestParam String table,
+            @RequestParam String checkType,
+            @RequestParam(required = false) String column,
+            @RequestParam(required = false) String group,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "0") long stepSeconds) {
+        // Same key layout as CheckResultTracker.seriesKey
+        String seriesKey = table + "|" + checkType + "|" + (column != null ? column : "")
+            + (group != null ? "|" + group : "");
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        return ResponseEntity.ok(checkHistoryService.query(seriesKey, start, end, stepSeconds));
+    }
+}
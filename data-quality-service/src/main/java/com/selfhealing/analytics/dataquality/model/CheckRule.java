@@ -0,0 +1,76 @@
+package com.selfhealing.analytics.dataquality.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.selfhealing.analytics.common.model.CheckType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single data quality check as declared in the rule registry (dq-rules.yml).
+ * Unset cadence and window fields are filled in from the registry defaults.
+ */
+@Data
+public class CheckRule {
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("table")
+    private String table;
+
+    @JsonProperty("type")
+    private CheckType type;
+
+    @JsonProperty("enabled")
+    private Boolean enabled;
+
+    // Top-level columns inspected by NULL_RATE / SCHEMA_DRIFT checks
+    @JsonProperty("columns")
+    private List<String> columns = new ArrayList<>();
+
+    // JSONB column and property keys inspected by NULL_RATE checks
+    @JsonProperty("json-column")
+    private String jsonColumn;
+
+    @JsonProperty("json-keys")
+    private List<String> jsonKeys = new ArrayList<>();
+
+    // TYPE_MISMATCH (JSONB profile) checks: per-group expected key -> JSON type
+    // (string, number, boolean, object, array), profiled over the top-keys most common keys
+    @JsonProperty("group-by")
+    private String groupBy;
+
+    @JsonProperty("top-keys")
+    private Integer topKeys;
+
+    @JsonProperty("expected-types")
+    private Map<String, Map<String, String>> expectedTypes = new LinkedHashMap<>();
+
+    // Values accepted by SCHEMA_DRIFT checks
+    @JsonProperty("allowed-values")
+    private List<String> allowedValues = new ArrayList<>();
+
+    @JsonProperty("warn-threshold")
+    private Double warnThreshold;
+
+    @JsonProperty("fail-threshold")
+    private Double failThreshold;
+
+    @JsonProperty("interval-seconds")
+    private Integer intervalSeconds;
+
+    @JsonProperty("timeout-seconds")
+    private Integer timeoutSeconds;
+
+    @JsonProperty("window-minutes")
+    private Integer windowMinutes;
+
+    @JsonProperty("time-column")
+    private String timeColumn;
+
+    @JsonProperty("sampling")
+    private SamplingConfig sampling;
+}
@@ -0,0 +1,19 @@
+package com.selfhealing.analytics.dataquality.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Root document of the rule registry file.
+ */
+@Data
+public class CheckRuleConfig {
+    @JsonProperty("defaults")
+    private CheckRule defaults = new CheckRule();
+
+    @JsonProperty("checks")
+    private List<CheckRule> checks = new ArrayList<>();
+}
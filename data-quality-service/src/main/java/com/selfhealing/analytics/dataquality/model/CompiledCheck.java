@@ -0,0 +1,47 @@
+package com.selfhealing.analytics.dataquality.model;
+
+import com.selfhealing.analytics.common.model.CheckType;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validated, ready-to-run form of a {@link CheckRule}. The SQL is rendered once
+ * when the rule set is compiled so running a check is a single query.
+ */
+@Value
+public class CompiledCheck {
+    String id;
+    String table;
+    CheckType type;
+    int intervalSeconds;
+    int timeoutSeconds;
+    double warnThreshold;
+    double failThreshold;
+    String sql;
+
+    // Same query over TABLESAMPLE, or null when the check always runs exactly
+    String sampledSql;
+    double samplePercent;
+    double confidence;
+    double zScore;
+
+    // Column labels for each null count in a NULL_RATE query (null_0, null_1, ...)
+    List<String> measures;
+
+    // Accepted values for SCHEMA_DRIFT checks
+    Set<String> allowedValues;
+
+    // Expected JSON type per group value and key for TYPE_MISMATCH checks
+    Map<String, Map<String, String>> expectedTypes;
+
+    public boolean isSampled() {
+        return sampledSql != null;
+    }
+
+    public String getMeasureAlias(int index) {
+        return "null_" + index;
+    }
+}
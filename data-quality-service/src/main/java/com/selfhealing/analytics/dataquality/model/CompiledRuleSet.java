@@ -0,0 +1,14 @@
+package com.selfhealing.analytics.dataquality.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of all enabled checks. Swapped atomically on reload.
+ */
+@Value
+public class CompiledRuleSet {
+    String version;
+    List<CompiledCheck> checks;
+}
@@ -0,0 +1,22 @@
+package com.selfhealing.analytics.dataquality.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Sampling settings for a check. When present, the check first runs against a
+ * TABLESAMPLE of the table and only falls back to an exact scan when the
+ * confidence interval of the estimate straddles a threshold.
+ */
+@Data
+public class SamplingConfig {
+    // SYSTEM samples whole pages (cheapest), BERNOULLI samples individual rows
+    @JsonProperty("method")
+    private String method = "SYSTEM";
+
+    @JsonProperty("percent")
+    private Double percent;
+
+    @JsonProperty("confidence")
+    private Double confidence = 0.95;
+}
@@ -0,0 +1,196 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.selfhealing.analytics.dataquality.model.CompiledCheck;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how often each check runs and which due checks fit in the database
+ * query budget. A check's interval moves between {@code min-factor} and
+ * {@code max-factor} times its configured interval:
+ * <ul>
+ *   <li>tables with a FAILED series are checked at the minimum interval (WARNING: halfway there),</li>
+ *   <li>a sudden change in ingest rate resets the interval to the configured one,</li>
+ *   <li>quiet, healthy tables have their interval stretched gradually,</li>
+ *   <li>busy, healthy tables drift back to the configured interval.</li>
+ * </ul>
+ * Ingest rates come from pg_stat_user_tables insert counters, so measuring
+ * them costs one catalog query per refresh for all tables.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveCadencePlanner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CheckResultTracker resultTracker;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Double> intervals = new ConcurrentHashMap<>();
+    private final Map<String, TableActivity> activity = new ConcurrentHashMap<>();
+
+    @Value("${dq.cadence.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dq.cadence.min-factor:0.25}")
+    private double minFactor;
+
+    @Value("${dq.cadence.max-factor:4.0}")
+    private double maxFactor;
+
+    @Value("${dq.cadence.stretch-factor:1.5}")
+    private double stretchFactor;
+
+    // Relative deviation from the smoothed ingest rate that counts as a change
+    @Value("${dq.cadence.rate-change-threshold:0.5}")
+    private double rateChangeThreshold;
+
+    // Smoothed ingest rate (rows/s) at or below which a table counts as quiet
+    @Value("${dq.cadence.quiet-rows-per-second:1.0}")
+    private double quietRowsPerSecond;
+
+    @Value("${dq.cadence.max-queries-per-minute:60}")
+    private int maxQueriesPerMinute;
+
+    private double budgetTokens = -1;
+    private long budgetRefilledAt = System.nanoTime();
+
+    /**
+     * Pick the checks to dispatch this tick: due checks ordered by anomaly
+     * score and lateness, cut off when the per-minute query budget runs out.
+     * Checks that do not fit stay due and are reconsidered on the next tick.
+     */
+    public synchronized List<CompiledCheck> selectDue(Collection<CompiledCheck> checks, Map<String, Instant> lastRunTimes,
+                                                      Instant now) {
+        List<CompiledCheck> due = new ArrayList<>();
+        Map<CompiledCheck, Double> priority = new HashMap<>();
+        for (CompiledCheck check : checks) {
+            Instant lastRun = lastRunTimes.get(check.getId());
+            double interval = intervalSeconds(check);
+            double elapsed = lastRun == null ? Double.MAX_VALUE : (now.toEpochMilli() - lastRun.toEpochMilli()) / 1000.0;
+            if (elapsed >= interval) {
+                due.add(check);
+                double lateness = lastRun == null ? 1 : Math.min(elapsed / interval, 10) / 10;
+                priority.put(check, resultTracker.anomalyScore(check.getTable()) + lateness);
+            }
+        }
+        due.sort(Comparator.comparingDouble((CompiledCheck check) -> priority.get(check)).reversed());
+
+        refillBudget();
+        List<CompiledCheck> selected = new ArrayList<>();
+        for (CompiledCheck check : due) {
+            int cost = check.isSampled() ? 2 : 1;
+            if (budgetTokens < cost) {
+                log.debug("Query budget exhausted, deferring {} of {} due checks", due.size() - selected.size(), due.size());
+                break;
+            }
+            budgetTokens -= cost;
+            selected.add(check);
+            adjustInterval(check);
+        }
+        return selected;
+    }
+
+    public double intervalSeconds(CompiledCheck check) {
+        if (!enabled) {
+            return check.getIntervalSeconds();
+        }
+        return intervals.computeIfAbsent(check.getId(), id -> {
+            Gauge.builder("dq.check.interval.seconds", intervals, m -> m.getOrDefault(id, 0.0))
+                 .tag("check", id)
+                 .register(meterRegistry);
+            return (double) check.getIntervalSeconds();
+        });
+    }
+
+    private void adjustInterval(CompiledCheck check) {
+        if (!enabled) {
+            return;
+        }
+        double base = check.getIntervalSeconds();
+        double current = intervalSeconds(check);
+        double next;
+        TableActivity table = activity.get(check.getTable());
+
+        double anomalyScore = resultTracker.anomalyScore(check.getTable());
+        if (anomalyScore > 0) {
+            next = base * (1 - anomalyScore * (1 - minFactor));
+        } else if (table == null || table.smoothedRate < 0) {
+            next = current; // no ingest rate measured yet
+        } else if (table.rateChanged) {
+            next = Math.min(current, base);
+        } else if (table.smoothedRate <= quietRowsPerSecond) {
+            next = current * stretchFactor;
+        } else {
+            next = current < base ? Math.min(base, current * stretchFactor) : base;
+        }
+        next = Math.max(base * minFactor, Math.min(base * maxFactor, next));
+
+        if (next != current) {
+            log.debug("Check {} interval {}s -> {}s", check.getId(), Math.round(current), Math.round(next));
+        }
+        intervals.put(check.getId(), next);
+    }
+
+    private void refillBudget() {
+        long now = System.nanoTime();
+        if (budgetTokens < 0) {
+            budgetTokens = maxQueriesPerMinute;
+        } else {
+            double minutes = (now - budgetRefilledAt) / 60_000_000_000.0;
+            budgetTokens = Math.min(maxQueriesPerMinute, budgetTokens + minutes * maxQueriesPerMinute);
+        }
+        budgetRefilledAt = now;
+    }
+
+    @Scheduled(fixedDelayString = "${dq.cadence.activity-refresh-ms:60000}")
+    public void refreshIngestRates() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            jdbcTemplate.query("SELECT relname, n_tup_ins FROM pg_stat_user_tables", rs -> {
+                String table = rs.getString("relname");
+                long inserted = rs.getLong("n_tup_ins");
+                activity.computeIfAbsent(table, t -> new TableActivity()).observe(inserted, now, rateChangeThreshold);
+            });
+        } catch (Exception e) {
+            log.error("Error refreshing table ingest rates", e);
+        }
+    }
+
+    private static class TableActivity {
+        private long lastInserted = -1;
+        private long lastObservedAt;
+        private double smoothedRate = -1;
+        private boolean rateChanged;
+
+        void observe(long inserted, long now, double changeThreshold) {
+            if (lastInserted >= 0 && now > lastObservedAt) {
+                // Counters reset on stats reset or restart; treat that as no inserts
+                double rate = Math.max(0, inserted - lastInserted) * 1000.0 / (now - lastObservedAt);
+                if (smoothedRate < 0) {
+                    smoothedRate = rate;
+                    rateChanged = false;
+                } else {
+                    double deviation = Math.abs(rate - smoothedRate) / Math.max(smoothedRate, 1.0);
+                    rateChanged = deviation > changeThreshold;
+                    smoothedRate = 0.7 * smoothedRate + 0.3 * rate;
+                }
+            }
+            lastInserted = inserted;
+            lastObservedAt = now;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the value of every check run as a compressed time series. Points are
+ * appended to an in-memory {@link GorillaBlockCodec.Encoder} per series and
+ * written to dq_check_history as one bytea row once the block is full or old
+ * enough, so months of per-minute values cost a few bytes per point and one
+ * row per block.
+ * <p>
+ * Open blocks are only flushed on a clean shutdown, so a crash loses each
+ * series' unwritten points: up to {@code max-block-points} of them, covering
+ * at most {@code max-block-age} (120 points or two hours by default). A block
+ * that fails to write is logged with the number of points lost.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CheckHistoryService {
+
+    private static final int MAX_BUCKETS = 1000;
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, GorillaBlockCodec.Encoder> openBlocks = new ConcurrentHashMap<>();
+
+    @Value("${dq.history.max-block-points:120}")
+    private int maxBlockPoints;
+
+    @Value("${dq.history.max-block-age:PT2H}")
+    private Duration maxBlockAge;
+
+    @Value("${dq.history.retention-days:180}")
+    private int retentionDays;
+
+    public void record(DataQualityCheck check) {
+        if (check.getActualValue() == null || check.getTimestamp() == null) {
+            return;
+        }
+        String seriesKey = CheckResultTracker.seriesKey(check);
+        long epochSecond = check.getTimestamp().getEpochSecond();
+        GorillaBlockCodec.Encoder[] closed = new GorillaBlockCodec.Encoder[1];
+
+        openBlocks.compute(seriesKey, (key, block) -> {
+            if (block != null && (block.getCount() >= maxBlockPoints
+                    || epochSecond - block.getFirstTimestamp() >= maxBlockAge.getSeconds()
+                    || epochSecond < block.getLastTimestamp())) {
+                closed[0] = block;
+                block = null;
+            }
+            if (block == null) {
+                block = new GorillaBlockCodec.Encoder();
+            }
+            block.append(epochSecond, check.getActualValue());
+            return block;
+        });
+
+        if (closed[0] != null) {
+            persist(seriesKey, closed[0]);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${dq.history.flush-interval-ms:60000}")
+    public void flushAgedBlocks() {
+        long cutoff = Instant.now().minus(maxBlockAge).getEpochSecond();
+        for (String seriesKey : openBlocks.keySet()) {
+            GorillaBlockCodec.Encoder[] closed = new GorillaBlockCodec.Encoder[1];
+            openBlocks.computeIfPresent(seriesKey, (key, block) -> {
+                if (block.getFirstTimestamp() <= cutoff) {
+                    closed[0] = block;
+                    return null;
+                }
+                return block;
+            });
+            if (closed[0] != null) {
+                persist(seriesKey, closed[0]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        for (String seriesKey : openBlocks.keySet()) {
+            GorillaBlockCodec.Encoder block = openBlocks.remove(seriesKey);
+            if (block != null) {
+                persist(seriesKey, block);
+            }
+        }
+    }
+
+    private void persist(String seriesKey, GorillaBlockCodec.Encoder block) {
+        try {
+            // A block can start at the same second as a stored one, e.g. after a
+            // late point closed the open block; the two are merged into one row
+            for (int attempt = 0; attempt < MAX_MERGE_ATTEMPTS; attempt++) {
+                if (insert(seriesKey, block) || merge(seriesKey, block)) {
+                    return;
+                }
+            }
+            log.warn("Lost {} history points for {}: the stored block at {} kept changing while merging",
+                block.getCount(), seriesKey, Instant.ofEpochSecond(block.getFirstTimestamp()));
+        } catch (Exception e) {
+            log.error("Lost {} history points for {}: could not persist block", block.getCount(), seriesKey, e);
+        }
+    }
+
+    private boolean insert(String seriesKey, GorillaBlockCodec.Encoder block) {
+        return jdbcTemplate.update("""
+            INSERT INTO dq_check_history (
+                series_key, block_start, block_end, point_count, min_value, max_value, data
+            ) VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (series_key, block_start) DO NOTHING
+            """,
+            seriesKey,
+            Timestamp.from(Instant.ofEpochSecond(block.getFirstTimestamp())),
+            Timestamp.from(Instant.ofEpochSecond(block.getLastTimestamp())),
+            block.getCount(),
+            block.getMin(),
+            block.getMax(),
+            block.toBytes()) > 0;
+    }
+
+    /**
+     * Rewrite the stored block that starts where {@code block} does with the
+     * points of both, in time order and without exact duplicates. The update
+     * only applies if the stored block still has the point count it was read
+     * with; false when it changed or disappeared in between.
+     */
+    private boolean merge(String seriesKey, GorillaBlockCodec.Encoder block) {
+        Timestamp blockStart = Timestamp.from(Instant.ofEpochSecond(block.getFirstTimestamp()));
+        List<Map<String, Object>> stored = jdbcTemplate.queryForList(
+            "SELECT point_count, data FROM dq_check_history WHERE series_key = ? AND block_start = ?",
+            seriesKey, blockStart);
+        if (stored.isEmpty()) {
+            return false;
+        }
+        int storedCount = ((Number) stored.get(0).get("point_count")).intValue();
+
+        List<Point> points = new ArrayList<>();
+        GorillaBlockCodec.decode((byte[]) stored.get(0).get("data"), storedCount,
+            (epochSecond, value) -> points.add(new Point(epochSecond, value)));
+        GorillaBlockCodec.decode(block.toBytes(), block.getCount(),
+            (epochSecond, value) -> points.add(new Point(epochSecond, value)));
+        points.sort(Comparator.comparingLong(Point::epochSecond));
+
+        GorillaBlockCodec.Encoder merged = new GorillaBlockCodec.Encoder();
+        Set<Point> seen = new HashSet<>();
+        for (Point point : points) {
+            if (seen.add(point)) {
+                merged.append(point.epochSecond(), point.value());
+            }
+        }
+
+        return jdbcTemplate.update("""
+            UPDATE dq_check_history
+            SET block_end = ?, point_count = ?, min_value = ?, max_value = ?, data = ?
+            WHERE series_key = ? AND block_start = ? AND point_count = ?
+            """,
+            Timestamp.from(Instant.ofEpochSecond(merged.getLastTimestamp())),
+            merged.getCount(),
+            merged.getMin(),
+            merged.getMax(),
+            merged.toBytes(),
+            seriesKey, blockStart, storedCount) > 0;
+    }
+
+    /**
+     * Series currently receiving values.
+     */
+    public List<String> getActiveSeries() {
+        List<String> series = new ArrayList<>(openBlocks.keySet());
+        Collections.sort(series);
+        return series;
+    }
+
+    /**
+     * Values of a series in [from, to], downsampled to buckets of
+     * {@code stepSeconds} (chosen automatically when not positive so that at
+     * most 1000 buckets are returned). Each bucket reports count, avg, min, max.
+     */
+    public List<Map<String, Object>> query(String seriesKey, Instant from, Instant to, long stepSeconds) {
+        long start = from.getEpochSecond();
+        long end = to.getEpochSecond();
+        long step = stepSeconds > 0 ? stepSeconds : Math.max(60, (end - start + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        if ((end - start) / step > MAX_BUCKETS * 10L) {
+            throw new IllegalArgumentException("Range too large for step " + step + "s");
+        }
+
+        TreeMap<Long, double[]> buckets = new TreeMap<>();
+        BiConsumer<Long, Double> collector = (epochSecond, value) -> {
+            if (epochSecond < start || epochSecond > end || value.isNaN()) {
+                return;
+            }
+            long bucket = start + ((epochSecond - start) / step) * step;
+            double[] agg = buckets.computeIfAbsent(bucket,
+                b -> new double[]{0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            agg[0]++;
+            agg[1] += value;
+            agg[2] = Math.min(agg[2], value);
+            agg[3] = Math.max(agg[3], value);
+        };
+
+        jdbcTemplate.query("""
+            SELECT point_count, data
+            FROM dq_check_history
+            WHERE series_key = ? AND block_start <= ? AND block_end >= ?
+            ORDER BY block_start
+            """,
+            (RowCallbackHandler) rs -> GorillaBlockCodec.decode(rs.getBytes("data"), rs.getInt("point_count"), collector),
+            seriesKey, Timestamp.from(to), Timestamp.from(from));
+
+        // Include points that are still in the open block
+        byte[][] openData = new byte[1][];
+        int[] openCount = new int[1];
+        openBlocks.computeIfPresent(seriesKey, (key, block) -> {
+            openData[0] = block.toBytes();
+            openCount[0] = block.getCount();
+            return block;
+        });
+        if (openData[0] != null) {
+            GorillaBlockCodec.decode(openData[0], openCount[0], collector);
+        }
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        buckets.forEach((bucket, agg) -> {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("timestamp", Instant.ofEpochSecond(bucket).toString());
+            point.put("count", (long) agg[0]);
+            point.put("avg", agg[1] / agg[0]);
+            point.put("min", agg[2]);
+            point.put("max", agg[3]);
+            points.add(point);
+        });
+        return points;
+    }
+
+    @Scheduled(cron = "${dq.history.retention-cron:0 30 3 * * *}")
+    public void purgeExpiredBlocks() {
+        int deleted = jdbcTemplate.update(
+            "DELETE FROM dq_check_history WHERE block_end < NOW() - make_interval(days => ?)", retentionDays);
+        log.info("Purged {} data quality history blocks older than {} days", deleted, retentionDays);
+    }
+
+    private record Point(long epochSecond, double value) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers check results per table and publishes them to data-quality-checks
+ * as JSON arrays keyed by table name, so all results for a table land on the
+ * same partition and travel in one (compressed) record.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CheckResultPublisher {
+
+    private static final String TOPIC = "data-quality-checks";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, List<DataQualityCheck>> buffers = new ConcurrentHashMap<>();
+
+    @Value("${dq.emission.max-batch-size:100}")
+    private int maxBatchSize;
+
+    public void enqueue(DataQualityCheck check) {
+        List<DataQualityCheck> ready = null;
+        List<DataQualityCheck> buffer = buffers.computeIfAbsent(check.getTableName(), k -> new ArrayList<>());
+        synchronized (buffer) {
+            buffer.add(check);
+            if (buffer.size() >= maxBatchSize) {
+                ready = new ArrayList<>(buffer);
+                buffer.clear();
+            }
+        }
+        if (ready != null) {
+            send(check.getTableName(), ready);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${dq.emission.flush-interval-ms:2000}")
+    @PreDestroy
+    public void flush() {
+        for (Map.Entry<String, List<DataQualityCheck>> entry : buffers.entrySet()) {
+            List<DataQualityCheck> batch;
+            List<DataQualityCheck> buffer = entry.getValue();
+            synchronized (buffer) {
+                if (buffer.isEmpty()) {
+                    continue;
+                }
+                batch = new ArrayList<>(buffer);
+                buffer.clear();
+            }
+            send(entry.getKey(), batch);
+        }
+    }
+
+    private void send(String tableName, List<DataQualityCheck> batch) {
+        try {
+            String batchJson = objectMapper.writeValueAsString(batch);
+            kafkaTemplate.send(TOPIC, tableName, batchJson);
+            log.debug("Emitted {} data quality results for {}", batch.size(), tableName);
+        } catch (Exception e) {
+            log.error("Error emitting data quality results for {}", tableName, e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.selfhealing.analytics.common.model.CheckStatus;
+import com.selfhealing.analytics.common.model.DataQualityCheck;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the last status of every (table, check type, column, group) series and
+ * decides which results are worth publishing. A result is emitted when:
+ * <ul>
+ *   <li>the status changes (including recovery back to PASSED),</li>
+ *   <li>a non-passing status is in its first {@code confirm-runs} runs, so the
+ *       AI ops engine still sees enough failures to open an incident,</li>
+ *   <li>a non-passing status has not been re-announced for a heartbeat interval.</li>
+ * </ul>
+ * Everything else is suppressed.
+ */
+@Component
+@Slf4j
+public class CheckResultTracker {
+
+    private final Map<String, SeriesState> states = new ConcurrentHashMap<>();
+
+    @Value("${dq.emission.confirm-runs:3}")
+    private int confirmRuns;
+
+    @Value("${dq.emission.heartbeat-interval:PT5M}")
+    private Duration heartbeatInterval;
+
+    @Value("${dq.emission.state-ttl:PT24H}")
+    private Duration stateTtl;
+
+    public static String seriesKey(DataQualityCheck check) {
+        Map<String, Object> details = check.getDetails() != null ? check.getDetails() : Map.of();
+        Object column = details.get("column_name");
+        Object group = details.get("group_value");
+        return check.getTableName() + "|" + check.getCheckType() + "|" + (column != null ? column : "")
+            + (group != null ? "|" + group : "");
+    }
+
+    /**
+     * Record a result and decide whether to publish it. Published results are
+     * annotated with the series state so consumers can tell transitions from
+     * heartbeats.
+     */
+    public boolean shouldEmit(DataQualityCheck check) {
+        Instant now = check.getTimestamp() != null ? check.getTimestamp() : Instant.now();
+        String[] reason = new String[1];
+
+        SeriesState state = states.compute(seriesKey(check), (key, previous) -> {
+            SeriesState next = previous != null ? previous : new SeriesState(CheckStatus.PASSED, now);
+            next.lastSeen = now;
+            if (next.status != check.getStatus()) {
+                next.status = check.getStatus();
+                next.since = now;
+                next.consecutiveRuns = 1;
+                reason[0] = "TRANSITION";
+            } else {
+                next.consecutiveRuns++;
+                if (check.getStatus() != CheckStatus.PASSED) {
+                    if (next.consecutiveRuns <= confirmRuns) {
+                        reason[0] = "CONFIRMATION";
+                    } else if (next.lastEmitted == null
+                            || Duration.between(next.lastEmitted, now).compareTo(heartbeatInterval) >= 0) {
+                        reason[0] = "HEARTBEAT";
+                    }
+                }
+            }
+            if (reason[0] != null) {
+                next.lastEmitted = now;
+            }
+            return next;
+        });
+
+        if (reason[0] == null) {
+            return false;
+        }
+
+        Map<String, Object> details = check.getDetails() != null ? check.getDetails() : new HashMap<>();
+        details.put("emission_reason", reason[0]);
+        details.put("state_since", state.since.toString());
+        details.put("consecutive_runs", state.consecutiveRuns);
+        check.setDetails(details);
+        return true;
+    }
+
+    /**
+     * Current anomaly level of a table: 1.0 if any of its series is FAILED,
+     * 0.5 if the worst is WARNING, 0 when everything passes.
+     */
+    public double anomalyScore(String tableName) {
+        String prefix = tableName + "|";
+        double score = 0;
+        for (Map.Entry<String, SeriesState> entry : states.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                CheckStatus status = entry.getValue().status;
+                score = Math.max(score, status == CheckStatus.FAILED ? 1.0 : status == CheckStatus.WARNING ? 0.5 : 0);
+            }
+        }
+        return score;
+    }
+
+    @Scheduled(fixedDelayString = "${dq.emission.state-sweep-ms:600000}")
+    public void evictStaleSeries() {
+        Instant cutoff = Instant.now().minus(stateTtl);
+        int before = states.size();
+        states.values().removeIf(state -> state.lastSeen.isBefore(cutoff));
+        if (states.size() < before) {
+            log.debug("Evicted {} stale check series", before - states.size());
+        }
+    }
+
+    private static class SeriesState {
+        private CheckStatus status;
+        private Instant since;
+        private Instant lastSeen;
+        private Instant lastEmitted;
+        private int consecutiveRuns;
+
+        SeriesState(CheckStatus status, Instant since) {
+            this.status = status;
+            this.since = since;
+            this.lastSeen = since;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.selfhealing.analytics.common.model.CheckType;
+import com.selfhealing.analytics.dataquality.model.CheckRule;
+import com.selfhealing.analytics.dataquality.model.CheckRuleConfig;
+import com.selfhealing.analytics.dataquality.model.CompiledCheck;
+import com.selfhealing.analytics.dataquality.model.CompiledRuleSet;
+import com.selfhealing.analytics.dataquality.model.SamplingConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Loads data quality checks from a YAML rule file and compiles them into an
+ * immutable {@link CompiledRuleSet}. The file is polled for changes and a new
+ * rule set is swapped in only if it compiles cleanly; otherwise the previous
+ * one stays active.
+ */
+@Component
+@Slf4j
+public class CheckRuleRegistry {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+    private static final Pattern JSON_KEY = Pattern.compile("^[A-Za-z0-9_.\\-]+$");
+    private static final Set<String> JSON_TYPES = Set.of("string", "number", "boolean", "object", "array");
+    public static final String UNGROUPED = "*";
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    @Value("${dq.rules.location:classpath:dq-rules.yml}")
+    private String location;
+
+    private volatile CompiledRuleSet ruleSet = new CompiledRuleSet("empty", List.of());
+
+    public CheckRuleRegistry(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            ruleSet = load();
+            log.info("Loaded {} data quality checks from {} (version {})",
+                ruleSet.getChecks().size(), location, ruleSet.getVersion());
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid data quality rules at " + location, e);
+        }
+    }
+
+    public CompiledRuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    @Scheduled(fixedDelayString = "${dq.rules.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        try {
+            byte[] content = readRules();
+            if (version(content).equals(ruleSet.getVersion())) {
+                return;
+            }
+            ruleSet = compile(content);
+            log.info("Reloaded {} data quality checks from {} (version {})",
+                ruleSet.getChecks().size(), location, ruleSet.getVersion());
+        } catch (Exception e) {
+            log.error("Failed to reload data quality rules from {}, keeping version {}",
+                location, ruleSet.getVersion(), e);
+        }
+    }
+
+    private CompiledRuleSet load() throws Exception {
+        return compile(readRules());
+    }
+
+    private byte[] readRules() throws Exception {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    CompiledRuleSet compile(byte[] content) throws Exception {
+        CheckRuleConfig config = yamlMapper.readValue(content, CheckRuleConfig.class);
+        CheckRule defaults = config.getDefaults() != null ? config.getDefaults() : new CheckRule();
+
+        List<CompiledCheck> checks = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (CheckRule rule : config.getChecks()) {
+            if (Boolean.FALSE.equals(rule.getEnabled())) {
+                continue;
+            }
+            CompiledCheck check = compileRule(rule, defaults);
+            if (!ids.add(check.getId())) {
+                throw new IllegalArgumentException("Duplicate check id: " + check.getId());
+            }
+            checks.add(check);
+        }
+        return new CompiledRuleSet(version(content), List.copyOf(checks));
+    }
+
+    private CompiledCheck compileRule(CheckRule rule, CheckRule defaults) {
+        String table = requireIdentifier(rule.getTable(), "table");
+        CheckType type = Objects.requireNonNull(rule.getType(), "type is required for table " + table);
+
+        int interval = firstNonNull(rule.getIntervalSeconds(), defaults.getIntervalSeconds(), 60);
+        int timeout = firstNonNull(rule.getTimeoutSeconds(), defaults.getTimeoutSeconds(), 30);
+        double warn = firstNonNull(rule.getWarnThreshold(), defaults.getWarnThreshold(), 0.0);
+        double fail = firstNonNull(rule.getFailThreshold(), defaults.getFailThreshold(), 0.0);
+        Integer window = firstNonNull(rule.getWindowMinutes(), defaults.getWindowMinutes(), null);
+        String timeColumn = firstNonNull(rule.getTimeColumn(), defaults.getTimeColumn(), null);
+        String where = window != null && timeColumn != null
+            ? " WHERE " + requireIdentifier(timeColumn, "time-column")
+                + " > NOW() - INTERVAL '" + window + " minutes'"
+            : "";
+
+        String id = rule.getId() != null ? rule.getId() : defaultId(rule);
+        SamplingConfig sampling = rule.getSampling();
+        String sampledFrom = sampling != null ? table + tableSample(id, type, sampling) : null;
+        List<String> measures = new ArrayList<>();
+        Set<String> allowedValues = Set.of();
+        Map<String, Map<String, String>> expectedTypes = Map.of();
+        String sql;
+        String sampledSql = null;
+
+        switch (type) {
+            case ROW_COUNT_ANOMALY:
+                sql = "SELECT COUNT(*) FROM " + table;
+                if (sampledFrom != null) {
+                    sampledSql = "SELECT COUNT(*) FROM " + sampledFrom;
+                }
+                break;
+            case NULL_RATE:
+                StringBuilder select = new StringBuilder("SELECT COUNT(*) AS total_rows");
+                for (String column : rule.getColumns()) {
+                    requireIdentifier(column, "column");
+                    select.append(", COUNT(*) FILTER (WHERE ").append(column)
+                          .append(" IS NULL) AS null_").append(measures.size());
+                    measures.add(column);
+                }
+                if (!rule.getJsonKeys().isEmpty()) {
+                    String jsonColumn = requireIdentifier(rule.getJsonColumn(), "json-column");
+                    for (String key : rule.getJsonKeys()) {
+                        if (key == null || !JSON_KEY.matcher(key).matches()) {
+                            throw new IllegalArgumentException("Invalid json key: " + key);
+                        }
+                        select.append(", COUNT(*) FILTER (WHERE ").append(jsonColumn)
+                              .append("->>'").append(key).append("' IS NULL) AS null_").append(measures.size());
+                        measures.add(jsonColumn + "." + key);
+                    }
+                }
+                if (measures.isEmpty()) {
+                    throw new IllegalArgumentException("NULL_RATE check " + id + " has no columns or json-keys");
+                }
+                sql = select + " FROM " + table + where;
+                if (sampledFrom != null) {
+                    sampledSql = select + " FROM " + sampledFrom + where;
+                }
+                break;
+            case SCHEMA_DRIFT:
+                if (rule.getColumns().size() != 1) {
+                    throw new IllegalArgumentException("SCHEMA_DRIFT check " + id + " needs exactly one column");
+                }
+                String column = requireIdentifier(rule.getColumns().get(0), "column");
+                measures.add(column);
+                allowedValues = Set.copyOf(rule.getAllowedValues());
+                sql = "SELECT " + column + " AS value, COUNT(*) AS count FROM " + table + where
+                    + " GROUP BY " + column;
+                break;
+            case TYPE_MISMATCH:
+                String jsonColumn = requireIdentifier(rule.getJsonColumn(), "json-column");
+                String group = rule.getGroupBy() != null ? requireIdentifier(rule.getGroupBy(), "group-by") : null;
+                int topKeys = rule.getTopKeys() != null ? rule.getTopKeys() : 20;
+                expectedTypes = compileExpectedTypes(id, rule.getExpectedTypes(), group != null);
+                measures.add(jsonColumn);
+                sql = jsonProfileSql(table, jsonColumn, group, where, topKeys, expectedTypes);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported check type " + type + " for " + id);
+        }
+
+        return new CompiledCheck(id, table, type, interval, timeout, warn, fail, sql, sampledSql,
+            sampling != null ? sampling.getPercent() : 100.0,
+            sampling != null ? sampling.getConfidence() : 1.0,
+            sampling != null ? SampleEstimator.zScore(sampling.getConfidence()) : 0.0,
+            List.copyOf(measures), allowedValues, expectedTypes);
+    }
+
+    private Map<String, Map<String, String>> compileExpectedTypes(String id, Map<String, Map<String, String>> declared,
+                                                                  boolean grouped) {
+        if (declared.isEmpty()) {
+            throw new IllegalArgumentException("TYPE_MISMATCH check " + id + " has no expected-types");
+        }
+        if (!grouped && (declared.size() != 1 || !declared.containsKey(UNGROUPED))) {
+            throw new IllegalArgumentException("TYPE_MISMATCH check " + id
+                + " without group-by must declare expected-types under '" + UNGROUPED + "'");
+        }
+        Map<String, Map<String, String>> compiled = new LinkedHashMap<>();
+        declared.forEach((groupValue, keys) -> {
+            Map<String, String> types = new LinkedHashMap<>();
+            keys.forEach((key, jsonType) -> {
+                if (!JSON_KEY.matcher(key).matches()) {
+                    throw new IllegalArgumentException("Invalid json key: " + key);
+                }
+                if (!JSON_TYPES.contains(jsonType)) {
+                    throw new IllegalArgumentException("Invalid json type for " + key + ": " + jsonType);
+                }
+                types.put(key, jsonType);
+            });
+            if (types.isEmpty()) {
+                throw new IllegalArgumentException("TYPE_MISMATCH check " + id + " has no keys for " + groupValue);
+            }
+            compiled.put(groupValue, Map.copyOf(types));
+        });
+        return Map.copyOf(compiled);
+    }
+
+    /**
+     * Profile every key of a JSONB column in one scan of the window: rows per
+     * group, plus rows per (group, key, JSON type) for the most frequent keys
+     * of each group and every expected key. The result size is bounded by
+     * groups x (top-keys + expected keys) x JSON types.
+     */
+    private String jsonProfileSql(String table, String jsonColumn, String group, String where, int topKeys,
+                                  Map<String, Map<String, String>> expectedTypes) {
+        Set<String> expectedKeys = new TreeSet<>();
+        expectedTypes.values().forEach(keys -> expectedKeys.addAll(keys.keySet()));
+        String keyList = expectedKeys.stream().map(k -> "'" + k + "'").collect(Collectors.joining(", "));
+        String groupExpr = group != null ? "COALESCE(" + group + "::text, 'null')" : "'" + UNGROUPED + "'";
+
+        return """
+            WITH recent AS (
+                SELECT %s AS grp, %s AS doc FROM %s%s
+            ), totals AS (
+                SELECT grp, COUNT(*) AS total_rows FROM recent GROUP BY grp
+            ), key_types AS (
+                SELECT r.grp, e.key, jsonb_typeof(e.value) AS value_type, COUNT(*) AS rows
+                FROM recent r,
+                     jsonb_each(CASE WHEN jsonb_typeof(r.doc) = 'object' THEN r.doc ELSE '{}'::jsonb END) e
+                GROUP BY r.grp, e.key, jsonb_typeof(e.value)
+            ), ranked AS (
+                SELECT grp, key, value_type, rows,
+                       DENSE_RANK() OVER (PARTITION BY grp ORDER BY key_rows DESC, key) AS key_rank
+                FROM (SELECT key_types.*, SUM(rows) OVER (PARTITION BY grp, key) AS key_rows FROM key_types) k
+            )
+            SELECT t.grp, t.total_rows, r.key, r.value_type, r.rows
+            FROM totals t
+            LEFT JOIN ranked r ON r.grp = t.grp AND (r.key_rank <= %d OR r.key IN (%s))
+            """.formatted(groupExpr, jsonColumn, table, where, topKeys, keyList);
+    }
+
+    private String tableSample(String id, CheckType type, SamplingConfig sampling) {
+        // Drift and type checks look for any occurrence of an unexpected value, which a sample can miss
+        if (type == CheckType.SCHEMA_DRIFT || type == CheckType.TYPE_MISMATCH) {
+            throw new IllegalArgumentException("Sampling is not supported for " + type + " check " + id);
+        }
+        String method = sampling.getMethod() != null ? sampling.getMethod().toUpperCase() : "";
+        if (!method.equals("SYSTEM") && !method.equals("BERNOULLI")) {
+            throw new IllegalArgumentException("Unknown sampling method for " + id + ": " + sampling.getMethod());
+        }
+        Double percent = sampling.getPercent();
+        if (percent == null || percent <= 0 || percent > 100) {
+            throw new IllegalArgumentException("Sampling percent for " + id + " must be in (0, 100]");
+        }
+        if (sampling.getConfidence() == null) {
+            throw new IllegalArgumentException("Sampling confidence for " + id + " is required");
+        }
+        return " TABLESAMPLE " + method + " (" + BigDecimal.valueOf(percent).toPlainString() + ")";
+    }
+
+    private String defaultId(CheckRule rule) {
+        String id = rule.getTable() + ":" + rule.getType();
+        if (!rule.getColumns().isEmpty()) {
+            id += ":" + String.join(",", rule.getColumns());
+        }
+        if (!rule.getJsonKeys().isEmpty()) {
+            id += ":" + rule.getJsonColumn();
+        }
+        return id;
+    }
+
+    private static String requireIdentifier(String value, String field) {
+        if (value == null || !IDENTIFIER.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+        return value;
+    }
+
+    @SafeVarargs
+    private static <T> T firstNonNull(T... values) {
+        for (T value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String version(byte[] content) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+        return HexFormat.of().formatHex(hash, 0, 6);
+    }
+}
@@ -0,0 +1,137 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import com.selfhealing.analytics.dataquality.model.CompiledCheck;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs data quality checks concurrently on a bounded worker pool so that one
+ * slow query cannot hold up the rest. Each check gets its own statement
+ * timeout, is cancelled if it overruns, and is skipped while a previous run of
+ * the same check is still in flight.
+ */
+@Component
+@Slf4j
+public class CheckRunner {
+
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+        runnable -> new Thread(runnable, "dq-check-watchdog"));
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, JdbcTemplate> templatesByTimeout = new ConcurrentHashMap<>();
+
+    public CheckRunner(DataSource dataSource,
+                       MeterRegistry meterRegistry,
+                       @Value("${dq.runner.pool-size:4}") int poolSize,
+                       @Value("${dq.runner.queue-capacity:32}") int queueCapacity) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> new Thread(runnable, "dq-check-" + threadCount.incrementAndGet()));
+    }
+
+    /**
+     * JdbcTemplate whose statements are cancelled by the driver after the
+     * check's timeout.
+     */
+    public JdbcTemplate jdbcFor(CompiledCheck check) {
+        return templatesByTimeout.computeIfAbsent(check.getTimeoutSeconds(), timeout -> {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setQueryTimeout(timeout);
+            return template;
+        });
+    }
+
+    /**
+     * Submit a check for execution.
+     *
+     * @return false if the check was skipped because it is still running or the pool is saturated
+     */
+    public boolean submit(CompiledCheck check, Runnable task) {
+        if (!inFlight.add(check.getId())) {
+            log.warn("Skipping check {}: previous run still in flight", check.getId());
+            meterRegistry.counter("dq.check.skipped", "check", check.getId(), "reason", "in_flight").increment();
+            return false;
+        }
+
+        // Claimed by whichever comes first: the worker starting the check or the watchdog cancelling it
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> future;
+        try {
+            future = workers.submit(() -> {
+                if (claimed.compareAndSet(false, true)) {
+                    execute(check, task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(check.getId());
+            log.warn("Skipping check {}: runner queue is full", check.getId());
+            meterRegistry.counter("dq.check.skipped", "check", check.getId(), "reason", "rejected").increment();
+            return false;
+        }
+
+        // Backstop for work the JDBC query timeout does not cover
+        long deadlineMs = check.getTimeoutSeconds() * 1000L + 5000L;
+        watchdog.schedule(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                // Still queued: execute() will never run, so release the check here
+                log.warn("Dropping check {} after {} ms in the runner queue", check.getId(), deadlineMs);
+                future.cancel(false);
+                inFlight.remove(check.getId());
+                meterRegistry.counter("dq.check.skipped", "check", check.getId(), "reason", "queued_timeout").increment();
+            } else if (!future.isDone()) {
+                log.warn("Cancelling check {} after {} ms", check.getId(), deadlineMs);
+                future.cancel(true);
+            }
+        }, deadlineMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void execute(CompiledCheck check, Runnable task) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            task.run();
+        } catch (QueryTimeoutException e) {
+            outcome = "timeout";
+            log.error("Data quality check {} timed out after {}s", check.getId(), check.getTimeoutSeconds());
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Error running data quality check {}", check.getId(), e);
+        } finally {
+            inFlight.remove(check.getId());
+            Timer.builder("dq.check.duration")
+                .description("Data quality check execution time")
+                .tag("check", check.getId())
+                .tag("type", check.getType().name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        workers.shutdownNow();
+    }
+}
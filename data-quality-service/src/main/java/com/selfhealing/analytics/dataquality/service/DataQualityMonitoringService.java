@@ -1,179 +1,332 @@
 package com.selfhealing.analytics.dataquality.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.selfhealing.analytics.common.model.CheckStatus;
 import com.selfhealing.analytics.common.model.CheckType;
 import com.selfhealing.analytics.common.model.DataQualityCheck;
+import com.selfhealing.analytics.dataquality.model.CompiledCheck;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DataQualityMonitoringService {
     
-    private final JdbcTemplate jdbcTemplate;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    private final CheckRuleRegistry ruleRegistry;
+    private final CheckRunner checkRunner;
+    private final CheckResultTracker resultTracker;
+    private final CheckResultPublisher resultPublisher;
+    private final AdaptiveCadencePlanner cadencePlanner;
+    private final CheckHistoryService historyService;
     
-    private final Map<String, Long> baselineRowCounts = new HashMap<>();
+    private final Map<String, Long> baselineRowCounts = new ConcurrentHashMap<>();
+    private final Map<String, Instant> lastRunTimes = new ConcurrentHashMap<>();
     
-    @Scheduled(fixedRate = 60000) // Every minute
-    @Transactional
-    public void checkRowCountAnomalies() {
-        try {
-            log.debug("Running row count anomaly checks");
+    @Scheduled(fixedDelayString = "${dq.scheduler.tick-ms:5000}")
+    public void runDueChecks() {
+        Instant now = Instant.now();
+        List<CompiledCheck> checks = ruleRegistry.getRuleSet().getChecks();
+        for (CompiledCheck check : cadencePlanner.selectDue(checks, lastRunTimes, now)) {
+            // A check the runner turns away stays due and is offered again next tick
+            if (checkRunner.submit(check, () -> runCheck(check))) {
+                lastRunTimes.put(check.getId(), now);
+            }
+        }
+    }
+    
+    private void runCheck(CompiledCheck check) {
+        switch (check.getType()) {
+            case ROW_COUNT_ANOMALY:
+                checkRowCountAnomaly(check);
+                break;
+            case NULL_RATE:
+                checkNullRates(check);
+                break;
+            case SCHEMA_DRIFT:
+                checkSchemaDrift(check);
+                break;
+            case TYPE_MISMATCH:
+                checkJsonProperties(check);
+                break;
+            default:
+                log.warn("No runner for check type {} ({})", check.getType(), check.getId());
+        }
+    }
+    
+    private void checkRowCountAnomaly(CompiledCheck rule) {
+        log.debug("Running row count anomaly check {}", rule.getId());
+        
+        String table = rule.getTable();
+        Map<String, Object> details = new HashMap<>();
+        Long baseline = baselineRowCounts.get(rule.getId());
+        Long currentCount = null;
+        CheckStatus status = null;
+        double change = 0;
+        
+        if (rule.isSampled()) {
+            long sampleRows = checkRunner.jdbcFor(rule).queryForObject(rule.getSampledSql(), Long.class);
+            double[] count = SampleEstimator.countInterval(sampleRows, rule.getSamplePercent(), rule.getZScore());
+            currentCount = Math.round(count[0]);
+            if (baseline != null && baseline > 0) {
+                double[] changeInterval = absoluteChangeInterval(baseline, count[1], count[2]);
+                status = confidentStatus(rule, changeInterval);
+                change = ((currentCount - baseline) / (double) baseline) * 100;
+                putSampleDetails(details, rule, sampleRows, changeInterval);
+            }
+        }
+        
+        if (status == null && (baseline != null || !rule.isSampled())) {
+            // Exact scan: no sampling configured, or the sampled interval straddles a threshold
+            currentCount = checkRunner.jdbcFor(rule).queryForObject(rule.getSql(), Long.class);
+            details.clear();
+            details.put("estimate_method", "EXACT");
+            if (baseline != null) {
+                change = changePercent(baseline, currentCount);
+                status = evaluate(rule, Math.abs(change));
+            }
+        }
+        
+        if (baseline != null && status != null) {
+            DataQualityCheck check = new DataQualityCheck();
+            check.setCheckId(UUID.randomUUID().toString());
+            check.setTableName(table);
+            check.setCheckType(CheckType.ROW_COUNT_ANOMALY);
+            check.setStatus(status);
+            check.setTimestamp(Instant.now());
+            check.setThreshold(rule.getFailThreshold());
+            check.setActualValue(Math.abs(change));
             
-            String[] tables = {"raw_events", "analytics_daily_revenue", 
-                             "analytics_user_funnel", "analytics_user_retention"};
+            details.put("baseline_count", baseline);
+            details.put("current_count", currentCount);
+            details.put("change_percent", change);
+            check.setDetails(details);
             
-            for (String table : tables) {
-                Long currentCount = jdbcTemplate.queryForObject(
-                    "SELECT COUNT(*) FROM " + table, Long.class);
-                
-                if (baselineRowCounts.containsKey(table)) {
-                    Long baseline = baselineRowCounts.get(table);
-                    double change = ((currentCount - baseline) / (double) baseline) * 100;
-                    
-                    CheckStatus status;
-                    if (Math.abs(change) > 50) { // 50% threshold
-                        status = CheckStatus.FAILED;
-                    } else if (Math.abs(change) > 25) {
-                        status = CheckStatus.WARNING;
-                    } else {
-                        status = CheckStatus.PASSED;
-                    }
-                    
-                    DataQualityCheck check = new DataQualityCheck();
-                    check.setCheckId(UUID.randomUUID().toString());
-                    check.setTableName(table);
-                    check.setCheckType(CheckType.ROW_COUNT_ANOMALY);
-                    check.setStatus(status);
-                    check.setTimestamp(Instant.now());
-                    check.setThreshold(50.0);
-                    check.setActualValue(Math.abs(change));
-                    
+            emitQualityCheck(check);
+        } else {
+            baselineRowCounts.put(rule.getId(), currentCount);
+        }
+    }
+    
+    private void checkNullRates(CompiledCheck rule) {
+        log.debug("Running null rate check {}", rule.getId());
+        
+        if (rule.isSampled() && checkSampledNullRates(rule)) {
+            return;
+        }
+        
+        checkRunner.jdbcFor(rule).query(rule.getSql(), rs -> {
+            long total = rs.getLong("total_rows");
+            if (total > 0) {
+                for (int i = 0; i < rule.getMeasures().size(); i++) {
+                    double nullRate = (rs.getLong(rule.getMeasureAlias(i)) / (double) total) * 100;
                     Map<String, Object> details = new HashMap<>();
-                    details.put("baseline_count", baseline);
-                    details.put("current_count", currentCount);
-                    details.put("change_percent", change);
-                    check.setDetails(details);
-                    
-                    emitQualityCheck(check);
-                } else {
-                    baselineRowCounts.put(table, currentCount);
+                    details.put("estimate_method", "EXACT");
+                    checkAndEmitNullRate(rule, rule.getMeasures().get(i), nullRate, evaluate(rule, nullRate), details);
                 }
             }
-            
-        } catch (Exception e) {
-            log.error("Error checking row count anomalies", e);
+        });
+    }
+    
+    /**
+     * Estimates null rates from a table sample and emits them when every
+     * measure's confidence interval falls inside a single status band.
+     *
+     * @return false if the estimate is inconclusive and an exact scan is needed
+     */
+    private boolean checkSampledNullRates(CompiledCheck rule) {
+        List<NullRateEstimate> estimates = new ArrayList<>();
+        checkRunner.jdbcFor(rule).query(rule.getSampledSql(), rs -> {
+            long sampleRows = rs.getLong("total_rows");
+            for (int i = 0; i < rule.getMeasures().size(); i++) {
+                long nulls = rs.getLong(rule.getMeasureAlias(i));
+                double[] interval = SampleEstimator.proportionInterval(nulls, sampleRows, rule.getZScore());
+                CheckStatus status = sampleRows > 0 ? confidentStatus(rule, interval) : null;
+                estimates.add(new NullRateEstimate(rule.getMeasures().get(i), sampleRows, nulls, interval, status));
+            }
+        });
+        
+        if (estimates.stream().anyMatch(e -> e.status == null)) {
+            log.debug("Sampled null rate for {} is inconclusive, escalating to exact scan", rule.getId());
+            return false;
         }
+        
+        for (NullRateEstimate estimate : estimates) {
+            double nullRate = (estimate.nulls / (double) estimate.sampleRows) * 100;
+            Map<String, Object> details = new HashMap<>();
+            putSampleDetails(details, rule, estimate.sampleRows, estimate.interval);
+            checkAndEmitNullRate(rule, estimate.column, nullRate, estimate.status, details);
+        }
+        return true;
     }
     
-    @Scheduled(fixedRate = 120000) // Every 2 minutes
-    @Transactional
-    public void checkNullRates() {
-        try {
-            log.debug("Running null rate checks");
-            
-            String sql = """
-                SELECT 
-                    'raw_events' as table_name,
-                    COUNT(*) as total_rows,
-                    COUNT(*) FILTER (WHERE user_id IS NULL) as null_user_id,
-                    COUNT(*) FILTER (WHERE timestamp IS NULL) as null_timestamp,
-                    COUNT(*) FILTER (WHERE event_type IS NULL) as null_event_type
-                FROM raw_events
-                WHERE ingested_at > NOW() - INTERVAL '1 hour'
-                """;
-            
-            jdbcTemplate.query(sql, rs -> {
-                long total = rs.getLong("total_rows");
-                if (total > 0) {
-                    double nullUserIdRate = (rs.getLong("null_user_id") / (double) total) * 100;
-                    double nullTimestampRate = (rs.getLong("null_timestamp") / (double) total) * 100;
-                    double nullEventTypeRate = (rs.getLong("null_event_type") / (double) total) * 100;
-                    
-                    checkAndEmitNullRate("raw_events", "user_id", nullUserIdRate);
-                    checkAndEmitNullRate("raw_events", "timestamp", nullTimestampRate);
-                    checkAndEmitNullRate("raw_events", "event_type", nullEventTypeRate);
-                }
-            });
+    private void checkSchemaDrift(CompiledCheck rule) {
+        log.debug("Running schema drift check {}", rule.getId());
+        
+        boolean[] drifted = new boolean[1];
+        checkRunner.jdbcFor(rule).query(rule.getSql(), rs -> {
+            String schemaVersion = rs.getString("value");
+            long count = rs.getLong("count");
             
-        } catch (Exception e) {
-            log.error("Error checking null rates", e);
+            // If we see unexpected schema versions, emit warning
+            if (schemaVersion == null || !rule.getAllowedValues().contains(schemaVersion)) {
+                drifted[0] = true;
+                Map<String, Object> details = new HashMap<>();
+                details.put("unexpected_schema_version", schemaVersion);
+                details.put("occurrence_count", count);
+                emitSchemaDrift(rule, CheckStatus.WARNING, details);
+            }
+        });
+        
+        // Report a clean run so the drift series can transition back to PASSED
+        if (!drifted[0]) {
+            emitSchemaDrift(rule, CheckStatus.PASSED, new HashMap<>());
         }
     }
     
-    @Scheduled(fixedRate = 300000) // Every 5 minutes
-    @Transactional
-    public void checkSchemaDrift() {
-        try {
-            log.debug("Running schema drift checks");
-            
-            // Check for unexpected schema versions
-            String sql = """
-                SELECT schema_version, COUNT(*) as count
-                FROM raw_events
-                WHERE ingested_at > NOW() - INTERVAL '1 hour'
-                GROUP BY schema_version
-                """;
-            
-            jdbcTemplate.query(sql, rs -> {
-                String schemaVersion = rs.getString("schema_version");
-                long count = rs.getLong("count");
+    private void emitSchemaDrift(CompiledCheck rule, CheckStatus status, Map<String, Object> details) {
+        DataQualityCheck check = new DataQualityCheck();
+        check.setCheckId(UUID.randomUUID().toString());
+        check.setTableName(rule.getTable());
+        check.setCheckType(CheckType.SCHEMA_DRIFT);
+        check.setStatus(status);
+        check.setTimestamp(Instant.now());
+        
+        details.put("column_name", rule.getMeasures().get(0));
+        check.setDetails(details);
+        
+        emitQualityCheck(check);
+    }
+    
+    /**
+     * Key presence and type conformance of JSONB properties per group (event
+     * type). Missing expected keys are reported as NULL_RATE results and
+     * values of the wrong JSON type as TYPE_MISMATCH results.
+     */
+    private void checkJsonProperties(CompiledCheck rule) {
+        log.debug("Running JSON property profile check {}", rule.getId());
+        
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, Map<String, Map<String, Long>>> typeCounts = new HashMap<>();
+        checkRunner.jdbcFor(rule).query(rule.getSql(), rs -> {
+            String group = rs.getString("grp");
+            totals.put(group, rs.getLong("total_rows"));
+            String key = rs.getString("key");
+            if (key != null) {
+                typeCounts.computeIfAbsent(group, g -> new HashMap<>())
+                          .computeIfAbsent(key, k -> new HashMap<>())
+                          .put(rs.getString("value_type"), rs.getLong("rows"));
+            }
+        });
+        
+        String jsonColumn = rule.getMeasures().get(0);
+        rule.getExpectedTypes().forEach((group, expectedKeys) -> {
+            long total = totals.getOrDefault(group, 0L);
+            if (total == 0) {
+                return;
+            }
+            Map<String, Map<String, Long>> keys = typeCounts.getOrDefault(group, Map.of());
+            expectedKeys.forEach((key, expectedType) -> {
+                Map<String, Long> typeMix = keys.getOrDefault(key, Map.of());
+                long present = typeMix.values().stream().mapToLong(Long::longValue).sum();
+                long nonNull = present - typeMix.getOrDefault("null", 0L);
+                long mismatched = nonNull - typeMix.getOrDefault(expectedType, 0L);
                 
-                // If we see unexpected schema versions, emit warning
-                if (!schemaVersion.equals("1.0")) {
+                double missingRate = ((total - nonNull) / (double) total) * 100;
+                Map<String, Object> details = new HashMap<>();
+                details.put("group_value", group);
+                details.put("key_presence_percent", (present / (double) total) * 100);
+                checkAndEmitNullRate(rule, jsonColumn + "." + key, missingRate, evaluate(rule, missingRate), details);
+                
+                if (nonNull > 0) {
+                    double mismatchRate = (mismatched / (double) nonNull) * 100;
                     DataQualityCheck check = new DataQualityCheck();
                     check.setCheckId(UUID.randomUUID().toString());
-                    check.setTableName("raw_events");
-                    check.setCheckType(CheckType.SCHEMA_DRIFT);
-                    check.setStatus(CheckStatus.WARNING);
+                    check.setTableName(rule.getTable());
+                    check.setCheckType(CheckType.TYPE_MISMATCH);
+                    check.setStatus(evaluate(rule, mismatchRate));
                     check.setTimestamp(Instant.now());
+                    check.setThreshold(rule.getFailThreshold());
+                    check.setActualValue(mismatchRate);
                     
-                    Map<String, Object> details = new HashMap<>();
-                    details.put("unexpected_schema_version", schemaVersion);
-                    details.put("occurrence_count", count);
-                    check.setDetails(details);
+                    Map<String, Object> typeDetails = new HashMap<>();
+                    typeDetails.put("column_name", jsonColumn + "." + key);
+                    typeDetails.put("group_value", group);
+                    typeDetails.put("expected_type", expectedType);
+                    typeDetails.put("type_mix", typeMix);
+                    typeDetails.put("mismatch_rate_percent", mismatchRate);
+                    check.setDetails(typeDetails);
                     
                     emitQualityCheck(check);
                 }
             });
-            
-        } catch (Exception e) {
-            log.error("Error checking schema drift", e);
+        });
+    }
+    
+    /**
+     * Percent change from the baseline. Rows arriving after an empty baseline
+     * are an unbounded change, so they fail whatever the thresholds.
+     */
+    private static double changePercent(long baseline, long current) {
+        if (baseline == 0) {
+            return current == 0 ? 0 : Double.POSITIVE_INFINITY;
         }
+        return ((current - baseline) / (double) baseline) * 100;
     }
     
-    private void checkAndEmitNullRate(String tableName, String columnName, double nullRate) {
-        CheckStatus status;
-        if (nullRate > 10) { // 10% threshold
-            status = CheckStatus.FAILED;
-        } else if (nullRate > 5) {
-            status = CheckStatus.WARNING;
-        } else {
-            status = CheckStatus.PASSED;
+    private CheckStatus evaluate(CompiledCheck rule, double value) {
+        if (value > rule.getFailThreshold()) {
+            return CheckStatus.FAILED;
+        } else if (value > rule.getWarnThreshold()) {
+            return CheckStatus.WARNING;
         }
-        
+        return CheckStatus.PASSED;
+    }
+    
+    /**
+     * Status implied by a confidence interval, or null when the interval
+     * crosses a threshold and the result is not trustworthy.
+     */
+    private CheckStatus confidentStatus(CompiledCheck rule, double[] interval) {
+        CheckStatus lower = evaluate(rule, interval[0]);
+        CheckStatus upper = evaluate(rule, interval[1]);
+        return lower == upper ? lower : null;
+    }
+    
+    private double[] absoluteChangeInterval(long baseline, double lowerCount, double upperCount) {
+        double lower = ((lowerCount - baseline) / baseline) * 100;
+        double upper = ((upperCount - baseline) / baseline) * 100;
+        if (lower <= 0 && upper >= 0) {
+            return new double[]{0, Math.max(-lower, upper)};
+        }
+        return new double[]{Math.min(Math.abs(lower), Math.abs(upper)), Math.max(Math.abs(lower), Math.abs(upper))};
+    }
+    
+    private void putSampleDetails(Map<String, Object> details, CompiledCheck rule, long sampleRows, double[] interval) {
+        details.put("estimate_method", "SAMPLED");
+        details.put("sample_percent", rule.getSamplePercent());
+        details.put("sample_rows", sampleRows);
+        details.put("confidence", rule.getConfidence());
+        details.put("ci_lower", interval[0]);
+        details.put("ci_upper", interval[1]);
+    }
+    
+    private void checkAndEmitNullRate(CompiledCheck rule, String columnName, double nullRate,
+                                      CheckStatus status, Map<String, Object> details) {
         DataQualityCheck check = new DataQualityCheck();
         check.setCheckId(UUID.randomUUID().toString());
-        check.setTableName(tableName);
+        check.setTableName(rule.getTable());
         check.setCheckType(CheckType.NULL_RATE);
         check.setStatus(status);
         check.setTimestamp(Instant.now());
-        check.setThreshold(10.0);
+        check.setThreshold(rule.getFailThreshold());
         check.setActualValue(nullRate);
         
-        Map<String, Object> details = new HashMap<>();
         details.put("column_name", columnName);
         details.put("null_rate_percent", nullRate);
         check.setDetails(details);
@@ -182,15 +335,29 @@ public class DataQualityMonitoringService {
     }
     
     private void emitQualityCheck(DataQualityCheck check) {
+        historyService.record(check);
         try {
-            if (check.getStatus() != CheckStatus.PASSED) {
-                String checkJson = objectMapper.writeValueAsString(check);
-                kafkaTemplate.send("data-quality-checks", check.getCheckId(), checkJson);
-                log.warn("Data quality check failed: {} - {} - {}", 
-                    check.getCheckType(), check.getTableName(), check.getStatus());
+            if (resultTracker.shouldEmit(check)) {
+                resultPublisher.enqueue(check);
+                if (check.getStatus() != CheckStatus.PASSED) {
+                    log.warn("Data quality check failed: {} - {} - {}", 
+                        check.getCheckType(), check.getTableName(), check.getStatus());
+                } else {
+                    log.info("Data quality check recovered: {} - {}", 
+                        check.getCheckType(), check.getTableName());
+                }
             }
         } catch (Exception e) {
             log.error("Error emitting quality check", e);
         }
     }
+    
+    @RequiredArgsConstructor
+    private static class NullRateEstimate {
+        private final String column;
+        private final long sampleRows;
+        private final long nulls;
+        private final double[] interval;
+        private final CheckStatus status;
+    }
 }
@@ -0,0 +1,220 @@
+package com.selfhealing.analytics.dataquality.service;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Compresses a series of (timestamp, value) points into a block using the
+ * scheme from Facebook's Gorilla paper: timestamps are stored as
+ * delta-of-deltas in variable-width buckets and values as the XOR with the
+ * previous value, reusing the previous leading/trailing zero window when
+ * possible. Regularly spaced, slowly changing series such as check results
+ * compress to a couple of bits per point.
+ *
+ * <p>Timestamps have second precision. The first point is stored verbatim.
+ */
+public final class GorillaBlockCodec {
+
+    private GorillaBlockCodec() {
+    }
+
+    /**
+     * Incremental encoder for one block. Not thread-safe.
+     */
+    public static class Encoder {
+        private final BitOutput out = new BitOutput();
+        private int count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long lastDelta;
+        private long lastValueBits;
+        private int lastLeading = Integer.MAX_VALUE;
+        private int lastTrailing;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        public void append(long epochSecond, double value) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count == 0) {
+                firstTimestamp = epochSecond;
+                out.write(epochSecond, 64);
+                out.write(valueBits, 64);
+            } else {
+                writeTimestamp(epochSecond);
+                writeValue(valueBits);
+            }
+            lastTimestamp = epochSecond;
+            lastValueBits = valueBits;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            count++;
+        }
+
+        private void writeTimestamp(long epochSecond) {
+            long delta = epochSecond - lastTimestamp;
+            long deltaOfDelta = delta - lastDelta;
+            lastDelta = delta;
+            if (deltaOfDelta == 0) {
+                out.writeBit(false);
+            } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+                out.write(0b10, 2);
+                out.write(deltaOfDelta + 63, 7);
+            } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+                out.write(0b110, 3);
+                out.write(deltaOfDelta + 255, 9);
+            } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+                out.write(0b1110, 4);
+                out.write(deltaOfDelta + 2047, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(deltaOfDelta, 64);
+            }
+        }
+
+        private void writeValue(long valueBits) {
+            long xor = valueBits ^ lastValueBits;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (lastLeading != Integer.MAX_VALUE && leading >= lastLeading && trailing >= lastTrailing) {
+                out.writeBit(false);
+                out.write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.write(leading, 5);
+                out.write(significant - 1, 6);
+                out.write(xor >>> trailing, significant);
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public byte[] toBytes() {
+            return out.toBytes();
+        }
+    }
+
+    /**
+     * Decode {@code count} points from a block, passing each
+     * (epochSecond, value) to the consumer in order.
+     */
+    public static void decode(byte[] block, int count, BiConsumer<Long, Double> consumer) {
+        if (count == 0) {
+            return;
+        }
+        BitInput in = new BitInput(block);
+        long timestamp = in.read(64);
+        long valueBits = in.read(64);
+        consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.read(7) - 63;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.read(9) - 255;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.read(12) - 2047;
+            } else {
+                deltaOfDelta = in.read(64);
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.read(5);
+                    int significant = (int) in.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = in.read(64 - leading - trailing) << trailing;
+                valueBits ^= xor;
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+        }
+    }
+
+    private static class BitOutput {
+        private byte[] buffer = new byte[64];
+        private int bitPosition;
+
+        void writeBit(boolean bit) {
+            ensureCapacity(1);
+            if (bit) {
+                buffer[bitPosition >>> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+            }
+            bitPosition++;
+        }
+
+        void write(long value, int bits) {
+            ensureCapacity(bits);
+            for (int i = bits - 1; i >= 0; i--) {
+                writeBit(((value >>> i) & 1) == 1);
+            }
+        }
+
+        private void ensureCapacity(int bits) {
+            int needed = (bitPosition + bits + 7) >>> 3;
+            if (needed > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+            }
+        }
+
+        byte[] toBytes() {
+            return Arrays.copyOf(buffer, (bitPosition + 7) >>> 3);
+        }
+    }
+
+    private static class BitInput {
+        private final byte[] buffer;
+        private int bitPosition;
+
+        BitInput(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean readBit() {
+            boolean bit = (buffer[bitPosition >>> 3] & (0x80 >>> (bitPosition & 7))) != 0;
+            bitPosition++;
+            return bit;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                value = (value << 1) | (readBit() ? 1 : 0);
+            }
+            return value;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.selfhealing.analytics.incidentstore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class IncidentStoreServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(IncidentStoreServiceApplication.class, args);
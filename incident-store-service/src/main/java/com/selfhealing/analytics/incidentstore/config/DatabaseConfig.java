@@ -47,9 +47,9 @@ public class DatabaseConfig implements CommandLineRunner {
                 detected_at TIMESTAMP WITH TIME ZONE,
                 resolved_at TIMESTAMP WITH TIME ZONE,
                 classification VARCHAR(255),
-                affected_components TEXT,
+                affected_components TEXT[],
                 root_cause_explanation TEXT,
-                recommended_remediations TEXT,
+                recommended_remediations TEXT[],
                 metadata JSONB,
                 resolution_notes TEXT,
                 created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
@@ -57,20 +57,219 @@ public class DatabaseConfig implements CommandLineRunner {
             )
             """);
         
-        // Create indexes
+        // Repeats of an open incident are folded into it (see IncidentStoreService)
         jdbcTemplate.execute("""
-            CREATE INDEX IF NOT EXISTS idx_incidents_status 
-            ON incidents(status)
+            ALTER TABLE incidents
+                ADD COLUMN IF NOT EXISTS fingerprint VARCHAR(64),
+                ADD COLUMN IF NOT EXISTS occurrence_count INTEGER NOT NULL DEFAULT 1,
+                ADD COLUMN IF NOT EXISTS last_seen_at TIMESTAMP WITH TIME ZONE,
+                ADD COLUMN IF NOT EXISTS merged_incident_ids TEXT[]
             """);
         
+        // At most one open incident per fingerprint; also the lookup for folding
         jdbcTemplate.execute("""
-            CREATE INDEX IF NOT EXISTS idx_incidents_classification 
-            ON incidents(classification)
+            CREATE UNIQUE INDEX IF NOT EXISTS idx_incidents_open_fingerprint 
+            ON incidents(fingerprint) WHERE status IN ('OPEN', 'INVESTIGATING')
             """);
         
+        // Later updates sent under a folded incident's id find the original
         jdbcTemplate.execute("""
-            CREATE INDEX IF NOT EXISTS idx_incidents_detected_at 
-            ON incidents(detected_at)
+            CREATE INDEX IF NOT EXISTS idx_incidents_merged_incident_ids 
+            ON incidents USING GIN (merged_incident_ids)
+            """);
+        
+        // Older schemas stored components comma-joined and remediations
+        // semicolon-joined; convert them to arrays once. The search vector
+        // is built from these columns, so it is dropped first and recreated below
+        jdbcTemplate.execute("""
+            DO $$ BEGIN
+                IF EXISTS (
+                    SELECT 1 FROM information_schema.columns
+                    WHERE table_name = 'incidents'
+                      AND column_name IN ('affected_components', 'recommended_remediations')
+                      AND data_type = 'text'
+                ) THEN
+                    ALTER TABLE incidents DROP COLUMN IF EXISTS search_vector;
+                    ALTER TABLE incidents
+                        ALTER COLUMN affected_components TYPE TEXT[]
+                            USING CASE WHEN affected_components IS NULL THEN NULL
+                                       WHEN affected_components = '' THEN '{}'::TEXT[]
+                                       ELSE string_to_array(affected_components, ',') END,
+                        ALTER COLUMN recommended_remediations TYPE TEXT[]
+                            USING CASE WHEN recommended_remediations IS NULL THEN NULL
+                                       WHEN recommended_remediations = '' THEN '{}'::TEXT[]
+                                       ELSE string_to_array(recommended_remediations, ';') END;
+                END IF;
+            END $$;
+            """);
+        
+        // array_to_string is only STABLE for anyarray, which generated columns
+        // reject; for text[] it is immutable, so wrap it
+        jdbcTemplate.execute("""
+            CREATE OR REPLACE FUNCTION incident_text_array_to_string(TEXT[]) RETURNS TEXT
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE
+            AS $$ SELECT array_to_string($1, '; ') $$
+            """);
+        
+        // Full-text search document: classification weighs most, then the root
+        // cause, then the remediations. Generated, so it never goes stale
+        jdbcTemplate.execute("""
+            ALTER TABLE incidents ADD COLUMN IF NOT EXISTS search_vector tsvector
+            GENERATED ALWAYS AS (
+                setweight(to_tsvector('english', replace(coalesce(classification, ''), '_', ' ')), 'A') ||
+                setweight(to_tsvector('english', coalesce(root_cause_explanation, '')), 'B') ||
+                setweight(to_tsvector('english', coalesce(incident_text_array_to_string(recommended_remediations), '')), 'C')
+            ) STORED
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_search_vector 
+            ON incidents USING GIN (search_vector)
+            """);
+        
+        // Component lookups: affected_components @> ARRAY[component]
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_affected_components 
+            ON incidents USING GIN (affected_components)
+            """);
+        
+        // Indexes for the incident list: each filter column followed by the
+        // keyset sort key (detected_at DESC, incident_id DESC), so a filtered
+        // page is a single range scan that stops after `limit` rows
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_detected_at_id 
+            ON incidents(detected_at DESC, incident_id DESC)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_status_detected_at 
+            ON incidents(status, detected_at DESC, incident_id DESC)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_severity_detected_at 
+            ON incidents(severity, detected_at DESC, incident_id DESC)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_classification_detected_at 
+            ON incidents(classification, detected_at DESC, incident_id DESC)
+            """);
+        
+        // Feed of resolved incidents, read in (resolved_at, incident_id) order
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_resolved_at_id 
+            ON incidents(resolved_at, incident_id) WHERE status = 'RESOLVED'
+            """);
+        
+        // The single-column indexes are prefixes of the composite ones above
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_incidents_status");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_incidents_classification");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_incidents_detected_at");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_incidents_resolved_at");
+        
+        // Cold tier for incidents closed long ago (see IncidentArchivalService);
+        // same columns as incidents without the search vector
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS incidents_archive (
+                incident_id VARCHAR(255) PRIMARY KEY,
+                severity incident_severity,
+                status incident_status,
+                detected_at TIMESTAMP WITH TIME ZONE,
+                resolved_at TIMESTAMP WITH TIME ZONE,
+                classification VARCHAR(255),
+                affected_components TEXT[],
+                root_cause_explanation TEXT,
+                recommended_remediations TEXT[],
+                metadata JSONB,
+                resolution_notes TEXT,
+                created_at TIMESTAMP WITH TIME ZONE,
+                updated_at TIMESTAMP WITH TIME ZONE,
+                fingerprint VARCHAR(64),
+                occurrence_count INTEGER NOT NULL DEFAULT 1,
+                last_seen_at TIMESTAMP WITH TIME ZONE,
+                merged_incident_ids TEXT[],
+                archived_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+            )
+            """);
+        
+        // The archive serves the same keyset pages as the hot table
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_archive_detected_at_id 
+            ON incidents_archive(detected_at DESC, incident_id DESC)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_archive_classification_detected_at 
+            ON incidents_archive(classification, detected_at DESC, incident_id DESC)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_archive_affected_components 
+            ON incidents_archive USING GIN (affected_components)
+            """);
+        
+        // Ingest restores archived incidents that are emitted again, by id or merged id
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_archive_merged_incident_ids 
+            ON incidents_archive USING GIN (merged_incident_ids)
+            """);
+        
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_archive_resolved_at_id 
+            ON incidents_archive(resolved_at, incident_id) WHERE status = 'RESOLVED'
+            """);
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_incidents_archive_resolved_at");
+        
+        // Archival picks the oldest closed incidents first
+        jdbcTemplate.execute("""
+            CREATE INDEX IF NOT EXISTS idx_incidents_closed_at 
+            ON incidents((coalesce(resolved_at, updated_at)))
+            WHERE status IN ('RESOLVED', 'FALSE_POSITIVE')
+            """);
+        
+        // Daily rollups for the stats endpoints, backfilled from existing incidents
+        // in the transaction that creates the table; afterwards every incident
+        // write updates them (see IncidentRollupService)
+        jdbcTemplate.execute("""
+            DO $$ BEGIN
+                IF NOT EXISTS (
+                    SELECT 1 FROM information_schema.tables WHERE table_name = 'incident_rollups_daily'
+                ) THEN
+                    LOCK TABLE incidents IN SHARE MODE;
+                    
+                    CREATE TABLE incident_rollups_daily (
+                        day DATE NOT NULL,
+                        classification VARCHAR(255) NOT NULL,
+                        severity VARCHAR(20) NOT NULL,
+                        opened_count BIGINT NOT NULL DEFAULT 0,
+                        resolved_count BIGINT NOT NULL DEFAULT 0,
+                        mttr_seconds_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+                        mttr_count BIGINT NOT NULL DEFAULT 0,
+                        PRIMARY KEY (day, classification, severity)
+                    );
+                    
+                    INSERT INTO incident_rollups_daily
+                    SELECT day, classification, severity,
+                           SUM(opened), SUM(resolved), SUM(mttr_seconds), SUM(resolved)
+                    FROM (
+                        SELECT (detected_at AT TIME ZONE 'UTC')::date AS day,
+                               coalesce(classification, 'UNCLASSIFIED') AS classification,
+                               coalesce(severity::text, 'UNKNOWN') AS severity,
+                               1 AS opened, 0 AS resolved, 0::double precision AS mttr_seconds
+                        FROM incidents
+                        WHERE detected_at IS NOT NULL AND status IS DISTINCT FROM 'FALSE_POSITIVE'
+                        UNION ALL
+                        SELECT (resolved_at AT TIME ZONE 'UTC')::date,
+                               coalesce(classification, 'UNCLASSIFIED'),
+                               coalesce(severity::text, 'UNKNOWN'),
+                               0, 1, extract(epoch FROM resolved_at - detected_at)::double precision
+                        FROM incidents
+                        WHERE detected_at IS NOT NULL AND resolved_at IS NOT NULL AND status = 'RESOLVED'
+                    ) contributions
+                    GROUP BY day, classification, severity;
+                END IF;
+            END $$;
             """);
         
         log.info("Incident store schema initialized");
@@ -0,0 +1,62 @@
+package com.selfhealing.analytics.incidentstore.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.selfhealing.analytics.incidentstore.service.IncidentPushService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+/**
+ * Retry and dead-letter handling for the incidents listener. A batch that
+ * fails is retried with exponential backoff from the failing record on
+ * (records before it are committed); once retries are exhausted the record
+ * goes to {@code incidents.DLT} with the failure in its headers and the rest
+ * of the batch carries on. Unreadable or invalid incidents skip the retries.
+ */
+@Configuration
+@Slf4j
+public class KafkaConfig {
+    
+    public static final String DEAD_LETTER_TOPIC = "incidents.DLT";
+    
+    @Bean
+    public NewTopic incidentsDeadLetterTopic() {
+        return TopicBuilder.name(DEAD_LETTER_TOPIC).partitions(1).replicas(1).build();
+    }
+    
+    @Bean
+    public NewTopic incidentUpdatesTopic() {
+        return TopicBuilder.name(IncidentPushService.UPDATES_TOPIC).partitions(1).replicas(1).build();
+    }
+    
+    @Bean
+    public DefaultErrorHandler incidentErrorHandler(
+            KafkaTemplate<String, String> kafkaTemplate,
+            @Value("${incident-store.retry.max-attempts:4}") int maxAttempts,
+            @Value("${incident-store.retry.initial-interval-ms:1000}") long initialInterval) {
+        // A negative partition lets the producer pick one, so the DLT needs no matching partition count
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, exception) -> new TopicPartition(DEAD_LETTER_TOPIC, -1));
+        
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxAttempts - 1);
+        backOff.setInitialInterval(initialInterval);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(30_000L);
+        
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler((record, exception) -> {
+            log.error("Sending incident at {}-{}@{} to {} after failure: {}",
+                    record.topic(), record.partition(), record.offset(), DEAD_LETTER_TOPIC, exception.getMessage());
+            recoverer.accept(record, exception);
+        }, backOff);
+        errorHandler.addNotRetryableExceptions(JsonProcessingException.class, IllegalArgumentException.class);
+        return errorHandler;
+    }
+}
@@ -1,10 +1,15 @@
 package com.selfhealing.analytics.incidentstore.controller;
 
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import com.selfhealing.analytics.common.model.IncidentStatus;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
 import com.selfhealing.analytics.incidentstore.service.IncidentStoreService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -15,12 +20,74 @@ public class IncidentController {
     
     private final IncidentStoreService incidentStoreService;
     
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> queryIncidents(
+            @RequestParam(required = false) IncidentStatus status,
+            @RequestParam(required = false) IncidentSeverity severity,
+            @RequestParam(required = false) String classification,
+            @RequestParam(required = false) String component,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        IncidentQuery query = new IncidentQuery();
+        query.setStatus(status);
+        query.setSeverity(severity);
+        query.setClassification(classification);
+        query.setComponent(component);
+        query.setFrom(from);
+        query.setTo(to);
+        query.setCursor(cursor);
+        query.setLimit(limit);
+        try {
+            return ResponseEntity.ok(incidentStoreService.queryIncidents(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/component/{component}")
+    public ResponseEntity<Map<String, Object>> getIncidentsByComponent(
+            @PathVariable String component,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        IncidentQuery query = new IncidentQuery();
+        query.setComponent(component);
+        query.setCursor(cursor);
+        query.setLimit(limit);
+        try {
+            return ResponseEntity.ok(incidentStoreService.queryIncidents(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchIncidents(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(incidentStoreService.searchIncidents(q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/similar/{classification}")
     public ResponseEntity<List<Map<String, Object>>> getSimilarIncidents(
             @PathVariable String classification) {
         return ResponseEntity.ok(incidentStoreService.getSimilarIncidents(classification));
     }
     
+    @GetMapping("/resolved")
+    public ResponseEntity<List<Map<String, Object>>> getResolvedIncidents(
+            @RequestParam(defaultValue = "1970-01-01T00:00:00Z") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+            @RequestParam(name = "after_id", defaultValue = "") String afterId,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(incidentStoreService.getResolvedIncidents(since, afterId, Math.min(limit, 5000)));
+    }
+    
     @PostMapping("/{incidentId}/resolve")
     public ResponseEntity<Void> resolveIncident(
             @PathVariable String incidentId,
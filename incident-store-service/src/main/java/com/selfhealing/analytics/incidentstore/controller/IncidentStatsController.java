@@ -0,0 +1,40 @@
+package com.selfhealing.analytics.incidentstore.controller;
+
+import com.selfhealing.analytics.incidentstore.service.IncidentRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/incidents/stats")
+@RequiredArgsConstructor
+public class IncidentStatsController {
+    
+    private final IncidentRollupService rollupService;
+    
+    @GetMapping("/daily")
+    public ResponseEntity<List<Map<String, Object>>> getDailyStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String classification,
+            @RequestParam(required = false) String severity) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return ResponseEntity.ok(rollupService.getDailyStats(start, end, classification, severity));
+    }
+    
+    @GetMapping("/summary")
+    public ResponseEntity<List<Map<String, Object>>> getSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return ResponseEntity.ok(rollupService.getSummary(start, end));
+    }
+}
@@ -0,0 +1,39 @@
+package com.selfhealing.analytics.incidentstore.controller;
+
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import com.selfhealing.analytics.common.model.IncidentStatus;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
+import com.selfhealing.analytics.incidentstore.service.IncidentPushService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/incidents")
+@RequiredArgsConstructor
+public class IncidentStreamController {
+    
+    private final IncidentPushService incidentPushService;
+    
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamIncidents(
+            @RequestParam(required = false) IncidentStatus status,
+            @RequestParam(required = false) IncidentSeverity severity,
+            @RequestParam(required = false) String classification,
+            @RequestParam(required = false) String component) {
+        IncidentQuery filter = new IncidentQuery();
+        filter.setStatus(status);
+        filter.setSeverity(severity);
+        filter.setClassification(classification);
+        filter.setComponent(component);
+        
+        SseEmitter emitter = incidentPushService.subscribe(filter);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
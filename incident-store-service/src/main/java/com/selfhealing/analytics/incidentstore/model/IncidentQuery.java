@@ -0,0 +1,24 @@
+package com.selfhealing.analytics.incidentstore.model;
+
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import com.selfhealing.analytics.common.model.IncidentStatus;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Filters and page position for listing incidents. Every filter is optional;
+ * pages run newest first and continue from an opaque {@code cursor}.
+ */
+@Data
+public class IncidentQuery {
+    private IncidentStatus status;
+    private IncidentSeverity severity;
+    private String classification;
+    private String component;
+    // Detection time range, from inclusive and to exclusive
+    private Instant from;
+    private Instant to;
+    private String cursor;
+    private int limit = 50;
+}
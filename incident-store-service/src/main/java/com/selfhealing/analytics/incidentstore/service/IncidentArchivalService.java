@@ -0,0 +1,131 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Moves incidents closed more than {@code after-days} ago from the hot
+ * incidents table to incidents_archive, which holds the same columns minus
+ * the search vector. Each chunk is one DELETE ... RETURNING feeding an
+ * INSERT, so a row is always in exactly one of the two tables; rows locked
+ * by ingest are skipped and picked up by a later run, and the job pauses
+ * between chunks so it never holds the table for long. An incident emitted
+ * again after it was archived is moved back by the store before it is
+ * updated (see {@link #RESTORE}); should an archived copy still exist when
+ * it is archived again, the newer row replaces it.
+ * <p>
+ * Rollups are not touched: archived incidents stay counted. List queries
+ * include the archive when their range reaches back past the horizon.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentArchivalService {
+    
+    static final String ARCHIVED_COLUMNS = """
+        incident_id, severity, status, detected_at, resolved_at, classification,
+        affected_components, root_cause_explanation, recommended_remediations, metadata,
+        resolution_notes, created_at, updated_at, fingerprint, occurrence_count,
+        last_seen_at, merged_incident_ids""";
+    
+    /** Moves archived incidents with the given ids, or holding them as merged ids, back to incidents. */
+    static final String RESTORE = """
+        WITH restored AS (
+            DELETE FROM incidents_archive
+            WHERE incident_id = ANY(?) OR merged_incident_ids && ?::TEXT[]
+            RETURNING %1$s
+        )
+        INSERT INTO incidents (%1$s)
+        SELECT %1$s FROM restored
+        """.formatted(ARCHIVED_COLUMNS);
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${incident-store.archive.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${incident-store.archive.after-days:30}")
+    private int afterDays;
+    
+    @Value("${incident-store.archive.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${incident-store.archive.pause-between-chunks:PT0.2S}")
+    private Duration pauseBetweenChunks;
+    
+    @Value("${incident-store.archive.max-chunks-per-run:1000}")
+    private int maxChunksPerRun;
+    
+    /**
+     * Incidents detected before this may be archived; a query whose range
+     * starts later never needs the archive.
+     */
+    public Instant archiveHorizon() {
+        return Instant.now().minus(Duration.ofDays(afterDays));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    private static String excludedColumns() {
+        return Arrays.stream(ARCHIVED_COLUMNS.split(","))
+            .map(column -> "EXCLUDED." + column.strip())
+            .collect(Collectors.joining(", "));
+    }
+    
+    @Scheduled(initialDelayString = "${incident-store.archive.initial-delay:PT1M}",
+               fixedDelayString = "${incident-store.archive.interval:PT1H}")
+    public void archiveClosedIncidents() {
+        if (!enabled) {
+            return;
+        }
+        Timestamp cutoff = Timestamp.from(archiveHorizon());
+        String sql = """
+            WITH moved AS (
+                DELETE FROM incidents
+                WHERE incident_id IN (
+                    SELECT incident_id FROM incidents
+                    WHERE status IN ('RESOLVED', 'FALSE_POSITIVE')
+                      AND coalesce(resolved_at, updated_at) < ?
+                    ORDER BY coalesce(resolved_at, updated_at)
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING %1$s
+            )
+            INSERT INTO incidents_archive (%1$s)
+            SELECT %1$s FROM moved
+            ON CONFLICT (incident_id) DO UPDATE SET (%1$s, archived_at) = (%2$s, NOW())
+            """.formatted(ARCHIVED_COLUMNS, excludedColumns());
+        
+        long total = 0;
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int moved = jdbcTemplate.update(sql, cutoff, chunkSize);
+                total += moved;
+                if (moved < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pauseBetweenChunks.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error archiving incidents", e);
+        }
+        if (total > 0) {
+            log.info("Archived {} incidents closed before {}", total, cutoff.toInstant());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import com.selfhealing.analytics.common.model.Incident;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Identity of an ongoing problem independent of the incident id it was
+ * emitted under: SHA-256 of the table and the primary check type the AI ops
+ * engine records in both provisional and complete metadata. Classification
+ * and affected components are left out because they change over an
+ * incident's life (the analysis completes, lineage folds add tables); the
+ * store also pins the fingerprint on first insert.
+ * <p>
+ * An incident whose analysis failed gives its fingerprint up: it stays open
+ * with the rule-based analysis it was closed out with, and a retry of the
+ * same checks (a dead-letter replay) opens an incident of its own instead of
+ * being counted as a repeat of it.
+ */
+final class IncidentFingerprints {
+    
+    private IncidentFingerprints() {
+    }
+    
+    /**
+     * The incident's fingerprint, or null when its metadata does not carry
+     * the table and check type or its analysis failed.
+     */
+    static String fingerprint(Incident incident) {
+        if (analysisFailed(incident)) {
+            return null;
+        }
+        Map<String, Object> metadata = incident.getMetadata();
+        Object tableName = metadata != null ? metadata.get("table_name") : null;
+        Object primaryCheckType = metadata != null ? metadata.get("primary_check_type") : null;
+        if (tableName == null || primaryCheckType == null) {
+            return null;
+        }
+        
+        String identity = tableName + "|" + primaryCheckType;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    static boolean analysisFailed(Incident incident) {
+        Map<String, Object> metadata = incident.getMetadata();
+        return metadata != null && "FAILED".equals(metadata.get("analysis_state"));
+    }
+}
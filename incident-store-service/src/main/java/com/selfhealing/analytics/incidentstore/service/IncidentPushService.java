@@ -0,0 +1,286 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selfhealing.analytics.common.model.Incident;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes new and updated incidents to dashboard clients over SSE.
+ * <p>
+ * The store announces every incident row it commits, from Kafka ingest and
+ * from resolves alike, on {@code incident-updates}, as the stored row under
+ * its own id (a repeat folded into another incident arrives as that
+ * incident). Each instance reads that topic once, with its own consumer
+ * group starting at the latest offset, and fans every incident out to the
+ * subscribers whose filters match, so the number of viewers never adds
+ * Kafka consumers or database reads.
+ * <p>
+ * Every subscriber has a bounded buffer drained by a small sender pool; a
+ * client too slow to keep its buffer from filling up is disconnected rather
+ * than allowed to hold events in memory (EventSource clients reconnect on
+ * their own). A send that blocks for longer than {@code send-timeout} gets
+ * its client disconnected and its thread written off: the pool grows by one
+ * until the blocked write returns, so stalled connections never starve the
+ * others.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentPushService {
+    
+    public static final String UPDATES_TOPIC = "incident-updates";
+    
+    private static final String HEARTBEAT = "";
+    private static final long STALLED = -1L;
+    
+    private final ObjectMapper objectMapper;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Value("${incident-store.push.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${incident-store.push.max-subscribers:5000}")
+    private int maxSubscribers;
+    
+    @Value("${incident-store.push.buffer-size:256}")
+    private int bufferSize;
+    
+    @Value("${incident-store.push.sender-threads:8}")
+    private int senderThreads;
+    
+    @Value("${incident-store.push.timeout:PT30M}")
+    private Duration timeout;
+    
+    @Value("${incident-store.push.send-timeout:PT5S}")
+    private Duration sendTimeout;
+    
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor senders;
+    
+    @PostConstruct
+    public void init() {
+        // The queue is unbounded, so the pool only grows when stalled sends raise the core size
+        senders = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "incident-push");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+    
+    /**
+     * Open a stream of incidents matching {@code filter}. The time range,
+     * cursor and limit of the query are ignored. Returns null when the
+     * instance already has {@code max-subscribers} clients.
+     */
+    public SseEmitter subscribe(IncidentQuery filter) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        String id = UUID.randomUUID().toString();
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(id, filter, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(error -> subscribers.remove(id));
+        subscribers.put(id, subscriber);
+        log.debug("Incident stream subscriber {} connected ({} total)", id, subscribers.size());
+        return emitter;
+    }
+    
+    /**
+     * Announce incident rows the store has just committed to every
+     * instance's subscribers. Best effort: the rows are stored either way.
+     */
+    public void announce(List<Incident> incidents) {
+        if (!enabled) {
+            return;
+        }
+        for (Incident incident : incidents) {
+            try {
+                kafkaTemplate.send(UPDATES_TOPIC, incident.getIncidentId(), objectMapper.writeValueAsString(incident))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            log.warn("Could not announce incident {}: {}", incident.getIncidentId(), error.getMessage());
+                        }
+                    });
+            } catch (Exception e) {
+                log.warn("Could not announce incident {}: {}", incident.getIncidentId(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * The internal feed: one consumer per instance, in a group of its own
+     * so every instance sees every update, starting from now.
+     */
+    @KafkaListener(topics = UPDATES_TOPIC, groupId = "incident-store-push-#{T(java.util.UUID).randomUUID()}",
+                   batch = "true", properties = "auto.offset.reset=latest")
+    public void onIncidents(List<String> incidentJsons) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (String incidentJson : incidentJsons) {
+            try {
+                publish(objectMapper.readValue(incidentJson, Incident.class), incidentJson);
+            } catch (Exception e) {
+                log.warn("Skipping unreadable incident on push feed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /** Fan an incident out to every matching subscriber without blocking. */
+    public void publish(Incident incident, String incidentJson) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (matches(subscriber.filter, incident)) {
+                enqueue(subscriber, incidentJson);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${incident-store.push.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        // Keeps idle connections open through proxies and detects dead clients
+        subscribers.values().forEach(subscriber -> enqueue(subscriber, HEARTBEAT));
+    }
+    
+    private void enqueue(Subscriber subscriber, String event) {
+        if (!subscriber.buffer.offer(event)) {
+            drop(subscriber, "buffer full");
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        try {
+            String event;
+            while (!subscriber.closed && (event = subscriber.buffer.poll()) != null) {
+                long started = Math.max(System.nanoTime(), 1L);
+                subscriber.sendStarted.set(started);
+                try {
+                    if (HEARTBEAT.equals(event)) {
+                        subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event().name("incident").data(event, MediaType.APPLICATION_JSON));
+                    }
+                } finally {
+                    if (!subscriber.sendStarted.compareAndSet(started, 0L)) {
+                        // Written off by checkStalledSends while blocked; hand the extra thread back
+                        releaseStalledSender();
+                    }
+                }
+            }
+            if (subscriber.closed) {
+                subscriber.emitter.complete();
+            }
+        } catch (Exception e) {
+            drop(subscriber, "send failed");
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.draining.set(false);
+            // An event may have arrived between the last poll and releasing the flag
+            if (!subscriber.buffer.isEmpty() && !subscriber.closed && subscriber.draining.compareAndSet(false, true)) {
+                senders.execute(() -> drain(subscriber));
+            }
+        }
+    }
+    
+    /**
+     * Disconnect clients whose current send has blocked for longer than
+     * {@code send-timeout}, and add a sender thread in place of each blocked one.
+     */
+    @Scheduled(fixedDelayString = "${incident-store.push.stall-check-interval:PT1S}")
+    public void checkStalledSends() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long started = subscriber.sendStarted.get();
+            if (started > 0 && now - started > sendTimeout.toNanos()
+                    && subscriber.sendStarted.compareAndSet(started, STALLED)) {
+                synchronized (senders) {
+                    senders.setCorePoolSize(senders.getCorePoolSize() + 1);
+                }
+                drop(subscriber, "send blocked for more than " + sendTimeout);
+            }
+        }
+    }
+    
+    private void releaseStalledSender() {
+        synchronized (senders) {
+            senders.setCorePoolSize(Math.max(senderThreads, senders.getCorePoolSize() - 1));
+        }
+    }
+    
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber.id) == null) {
+            return;
+        }
+        log.info("Disconnecting incident stream subscriber {}: {}", subscriber.id, reason);
+        subscriber.closed = true;
+        subscriber.buffer.clear();
+        // Completing takes the emitter's lock, which a blocked send holds; leave it to a sender
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> {
+                subscriber.emitter.complete();
+                subscriber.draining.set(false);
+            });
+        }
+    }
+    
+    private boolean matches(IncidentQuery filter, Incident incident) {
+        return (filter.getStatus() == null || filter.getStatus() == incident.getStatus())
+            && (filter.getSeverity() == null || filter.getSeverity() == incident.getSeverity())
+            && (filter.getClassification() == null || filter.getClassification().equals(incident.getClassification()))
+            && (filter.getComponent() == null || (incident.getAffectedComponents() != null
+                && incident.getAffectedComponents().contains(filter.getComponent())));
+    }
+    
+    private static class Subscriber {
+        private final String id;
+        private final IncidentQuery filter;
+        private final SseEmitter emitter;
+        private final BlockingQueue<String> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /** System.nanoTime() when the current send started, 0 when idle, STALLED once written off. */
+        private final AtomicLong sendStarted = new AtomicLong();
+        private volatile boolean closed;
+        
+        Subscriber(String id, IncidentQuery filter, SseEmitter emitter, BlockingQueue<String> buffer) {
+            this.id = id;
+            this.filter = filter;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+    }
+}
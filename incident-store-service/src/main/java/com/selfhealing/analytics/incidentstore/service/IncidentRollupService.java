@@ -0,0 +1,206 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Maintains incident_rollups_daily, counts and MTTR per UTC day,
+ * classification and severity, and answers the stats endpoints from it.
+ * <p>
+ * Every write to an incident passes the row's state before and after the
+ * write; the rollups move by the difference of the two contributions, so a
+ * reclassified, re-prioritized or re-resolved incident moves between buckets
+ * instead of being counted twice. An incident contributes one opening on its
+ * detection day and, once RESOLVED, one resolution and its time to resolve
+ * on its resolution day. FALSE_POSITIVE incidents contribute nothing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentRollupService {
+    
+    /** Columns of incidents the rollups depend on, for SELECT ... FOR UPDATE and RETURNING. */
+    static final String STATE_COLUMNS = "classification, severity, status, detected_at, resolved_at";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Apply the change from {@code before} to {@code after}. Must run in the
+     * transaction that wrote the incidents, with {@code before} read under
+     * FOR UPDATE, so concurrent writers cannot both apply the same old state.
+     */
+    public void applyDeltas(List<IncidentState> before, List<IncidentState> after) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>();
+        before.forEach(state -> state.contribute(deltas, -1));
+        after.forEach(state -> state.contribute(deltas, 1));
+        deltas.values().removeIf(RollupDelta::isZero);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        // Sorted keys keep concurrent writers locking rollup rows in the same order
+        List<Object> args = new ArrayList<>(deltas.size() * 7);
+        for (Map.Entry<RollupKey, RollupDelta> entry : deltas.entrySet()) {
+            RollupKey key = entry.getKey();
+            RollupDelta delta = entry.getValue();
+            args.addAll(List.of(Date.valueOf(key.day()), key.classification(), key.severity(),
+                delta.opened, delta.resolved, delta.mttrSeconds, delta.mttrCount));
+        }
+        String sql = """
+            INSERT INTO incident_rollups_daily (
+                day, classification, severity, opened_count, resolved_count,
+                mttr_seconds_sum, mttr_count
+            ) VALUES
+            """ + String.join(",\n", Collections.nCopies(deltas.size(), "(?, ?, ?, ?, ?, ?, ?)")) + """
+            
+            ON CONFLICT (day, classification, severity) DO UPDATE SET
+                opened_count = incident_rollups_daily.opened_count + EXCLUDED.opened_count,
+                resolved_count = incident_rollups_daily.resolved_count + EXCLUDED.resolved_count,
+                mttr_seconds_sum = incident_rollups_daily.mttr_seconds_sum + EXCLUDED.mttr_seconds_sum,
+                mttr_count = incident_rollups_daily.mttr_count + EXCLUDED.mttr_count
+            """;
+        jdbcTemplate.update(sql, args.toArray());
+    }
+    
+    /**
+     * Per-day totals between {@code from} and {@code to} (inclusive),
+     * optionally for one classification or severity.
+     */
+    public List<Map<String, Object>> getDailyStats(LocalDate from, LocalDate to, String classification, String severity) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT day,
+                   SUM(opened_count) AS opened,
+                   SUM(resolved_count) AS resolved,
+                   SUM(mttr_seconds_sum) AS mttr_seconds_sum,
+                   SUM(mttr_count) AS mttr_count
+            FROM incident_rollups_daily
+            WHERE day BETWEEN ? AND ?
+            """);
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        if (classification != null) {
+            sql.append(" AND classification = ?");
+            args.add(classification);
+        }
+        if (severity != null) {
+            sql.append(" AND severity = ?");
+            args.add(severity);
+        }
+        sql.append(" GROUP BY day ORDER BY day");
+        
+        return jdbcTemplate.query(sql.toString(),
+            (rs, rowNum) -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("day", rs.getDate("day").toLocalDate().toString());
+                putTotals(row, rs);
+                return row;
+            },
+            args.toArray());
+    }
+    
+    /**
+     * Totals per classification and severity between {@code from} and
+     * {@code to}, plus how many incidents of each are open right now.
+     */
+    public List<Map<String, Object>> getSummary(LocalDate from, LocalDate to) {
+        String sql = """
+            SELECT classification, severity,
+                   SUM(opened_count) FILTER (WHERE day BETWEEN ? AND ?) AS opened,
+                   SUM(resolved_count) FILTER (WHERE day BETWEEN ? AND ?) AS resolved,
+                   SUM(mttr_seconds_sum) FILTER (WHERE day BETWEEN ? AND ?) AS mttr_seconds_sum,
+                   SUM(mttr_count) FILTER (WHERE day BETWEEN ? AND ?) AS mttr_count,
+                   SUM(opened_count) - SUM(resolved_count) AS open_now
+            FROM incident_rollups_daily
+            GROUP BY classification, severity
+            ORDER BY classification, severity
+            """;
+        Date start = Date.valueOf(from);
+        Date end = Date.valueOf(to);
+        
+        return jdbcTemplate.query(sql,
+            (rs, rowNum) -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("classification", rs.getString("classification"));
+                row.put("severity", rs.getString("severity"));
+                putTotals(row, rs);
+                row.put("open_now", rs.getLong("open_now"));
+                return row;
+            },
+            start, end, start, end, start, end, start, end);
+    }
+    
+    private void putTotals(Map<String, Object> row, ResultSet rs) throws SQLException {
+        row.put("opened", rs.getLong("opened"));
+        row.put("resolved", rs.getLong("resolved"));
+        long mttrCount = rs.getLong("mttr_count");
+        row.put("mttr_seconds", mttrCount > 0 ? rs.getDouble("mttr_seconds_sum") / mttrCount : null);
+    }
+    
+    /** The rollup-relevant state of one incident row. */
+    record IncidentState(String classification, String severity, String status,
+                         Instant detectedAt, Instant resolvedAt) {
+        
+        static IncidentState map(ResultSet rs, int rowNum) throws SQLException {
+            Timestamp detectedAt = rs.getTimestamp("detected_at");
+            Timestamp resolvedAt = rs.getTimestamp("resolved_at");
+            return new IncidentState(rs.getString("classification"), rs.getString("severity"), rs.getString("status"),
+                detectedAt != null ? detectedAt.toInstant() : null,
+                resolvedAt != null ? resolvedAt.toInstant() : null);
+        }
+        
+        // Must match the backfill query in DatabaseConfig
+        void contribute(Map<RollupKey, RollupDelta> deltas, int sign) {
+            if (detectedAt == null || "FALSE_POSITIVE".equals(status)) {
+                return;
+            }
+            String rollupClassification = classification != null ? classification : "UNCLASSIFIED";
+            String rollupSeverity = severity != null ? severity : "UNKNOWN";
+            
+            RollupKey opened = new RollupKey(LocalDate.ofInstant(detectedAt, ZoneOffset.UTC),
+                rollupClassification, rollupSeverity);
+            deltas.computeIfAbsent(opened, key -> new RollupDelta()).opened += sign;
+            
+            if ("RESOLVED".equals(status) && resolvedAt != null) {
+                RollupKey resolved = new RollupKey(LocalDate.ofInstant(resolvedAt, ZoneOffset.UTC),
+                    rollupClassification, rollupSeverity);
+                RollupDelta delta = deltas.computeIfAbsent(resolved, key -> new RollupDelta());
+                delta.resolved += sign;
+                delta.mttrSeconds += sign * (Duration.between(detectedAt, resolvedAt).toMillis() / 1000.0);
+                delta.mttrCount += sign;
+            }
+        }
+    }
+    
+    private record RollupKey(LocalDate day, String classification, String severity) implements Comparable<RollupKey> {
+        
+        @Override
+        public int compareTo(RollupKey other) {
+            return Comparator.comparing(RollupKey::day)
+                .thenComparing(RollupKey::classification)
+                .thenComparing(RollupKey::severity)
+                .compare(this, other);
+        }
+    }
+    
+    private static class RollupDelta {
+        private long opened;
+        private long resolved;
+        private double mttrSeconds;
+        private long mttrCount;
+        
+        boolean isZero() {
+            return opened == 0 && resolved == 0 && mttrCount == 0 && Math.abs(mttrSeconds) < 1e-6;
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.selfhealing.analytics.incidentstore.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.selfhealing.analytics.common.model.Incident;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
 import com.selfhealing.analytics.common.model.IncidentStatus;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.*;
 
@@ -20,55 +30,384 @@ public class IncidentStoreService {
     
     private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final IncidentRollupService rollupService;
+    private final IncidentArchivalService archivalService;
+    private final IncidentPushService pushService;
     
-    @KafkaListener(topics = "incidents", groupId = "incident-store-group")
-    @Transactional
-    public void storeIncident(String incidentJson) {
-        try {
-            Incident incident = objectMapper.readValue(incidentJson, Incident.class);
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+    private static final int UPSERT_CHUNK_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    private static final String UPSERT_COLUMNS = """
+        INSERT INTO incidents (
+            incident_id, severity, status, detected_at, resolved_at,
+            classification, affected_components, root_cause_explanation,
+            recommended_remediations, metadata, created_at,
+            fingerprint, last_seen_at
+        ) VALUES
+        """;
+    
+    private static final String UPSERT_ROW = "(?, ?::incident_severity, ?::incident_status, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?)";
+    
+    /**
+     * A resolved or false-positive incident is left as the operator closed
+     * it: the engine re-emits incidents it folds symptoms into as OPEN, and
+     * that must neither reopen one nor rewrite the severity, components and
+     * analysis it was closed with.
+     */
+    private static final String UPSERT_CONFLICT = """
+        
+        ON CONFLICT (incident_id) DO UPDATE SET
+            severity = EXCLUDED.severity,
+            status = EXCLUDED.status,
+            resolved_at = EXCLUDED.resolved_at,
+            classification = EXCLUDED.classification,
+            affected_components = EXCLUDED.affected_components,
+            root_cause_explanation = EXCLUDED.root_cause_explanation,
+            recommended_remediations = EXCLUDED.recommended_remediations,
+            metadata = EXCLUDED.metadata,
+            fingerprint = CASE WHEN EXCLUDED.metadata->>'analysis_state' = 'FAILED'
+                               THEN NULL ELSE coalesce(incidents.fingerprint, EXCLUDED.fingerprint) END,
+            last_seen_at = GREATEST(incidents.last_seen_at, EXCLUDED.last_seen_at),
+            updated_at = NOW()
+        WHERE incidents.status NOT IN ('RESOLVED', 'FALSE_POSITIVE')
+        """;
+    
+    /**
+     * A repeat of an open incident: count it and keep its latest metadata on
+     * the original row. Updates under a folded id that arrive after the
+     * original was closed are dropped, as for the original's own id.
+     */
+    private static final String FOLD_OCCURRENCE = """
+        UPDATE incidents SET
+            occurrence_count = occurrence_count + ?,
+            last_seen_at = GREATEST(last_seen_at, ?),
+            severity = LEAST(severity, ?::incident_severity),
+            metadata = coalesce(metadata, '{}'::jsonb) || ?::jsonb,
+            merged_incident_ids = ARRAY(
+                SELECT DISTINCT unnest(coalesce(merged_incident_ids, '{}'::TEXT[]) || ?::TEXT[])),
+            updated_at = NOW()
+        WHERE incident_id = ? AND status NOT IN ('RESOLVED', 'FALSE_POSITIVE')
+        """;
+    
+    /**
+     * Stores a poll's worth of incidents at once. Updates to the same
+     * incident within the batch are coalesced, keeping the one with the
+     * latest record timestamp, and the survivors are written with one
+     * multi-row upsert. Failures are thrown to the container's error
+     * handler, which retries and then dead-letters them (see KafkaConfig).
+     */
+    @KafkaListener(topics = "incidents", groupId = "incident-store-group", batch = "true")
+    public void storeIncidents(List<ConsumerRecord<String, String>> records) {
+        Map<String, PendingIncident> latest = new LinkedHashMap<>();
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, String> record = records.get(index);
+            Incident incident;
+            try {
+                incident = objectMapper.readValue(record.value(), Incident.class);
+                if (incident.getIncidentId() == null || incident.getIncidentId().isEmpty()) {
+                    throw new IllegalArgumentException("Incident without incident_id");
+                }
+            } catch (Exception e) {
+                // Offsets before the bad record are committed, so store what came before it first
+                upsert(latest.values());
+                throw new BatchListenerFailedException("Unreadable incident", e, index);
+            }
             
-            String sql = """
-                INSERT INTO incidents (
-                    incident_id, severity, status, detected_at, resolved_at,
-                    classification, affected_components, root_cause_explanation,
-                    recommended_remediations, metadata, created_at
-                ) VALUES (?, ?::incident_severity, ?::incident_status, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)
-                ON CONFLICT (incident_id) DO UPDATE SET
-                    severity = EXCLUDED.severity,
-                    status = EXCLUDED.status,
-                    resolved_at = EXCLUDED.resolved_at,
-                    classification = EXCLUDED.classification,
-                    affected_components = EXCLUDED.affected_components,
-                    root_cause_explanation = EXCLUDED.root_cause_explanation,
-                    recommended_remediations = EXCLUDED.recommended_remediations,
-                    metadata = EXCLUDED.metadata,
-                    updated_at = NOW()
-                """;
+            PendingIncident pending = new PendingIncident(index, record.timestamp(), incident);
+            latest.merge(incident.getIncidentId(), pending,
+                (existing, candidate) -> candidate.timestamp >= existing.timestamp ? candidate : existing);
+        }
+        
+        upsert(latest.values());
+        log.info("Stored {} incidents from {} records", latest.size(), records.size());
+    }
+    
+    private void upsert(Collection<PendingIncident> incidents) {
+        List<PendingIncident> rows = new ArrayList<>(incidents);
+        for (int from = 0; from < rows.size(); from += UPSERT_CHUNK_SIZE) {
+            List<PendingIncident> chunk = rows.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, rows.size()));
+            try {
+                upsertChunk(chunk);
+            } catch (Exception e) {
+                log.warn("Multi-row upsert of {} incidents failed, retrying row by row", chunk.size(), e);
+                upsertIndividually(chunk);
+            }
+        }
+    }
+    
+    /**
+     * Row-by-row fallback that pins a failure on one record, so only that
+     * record is retried or dead-lettered. Rows are written in record order
+     * so everything before the failing record is stored when its offset
+     * is committed.
+     */
+    private void upsertIndividually(List<PendingIncident> chunk) {
+        List<PendingIncident> ordered = new ArrayList<>(chunk);
+        ordered.sort(Comparator.comparingInt(row -> row.index));
+        for (PendingIncident row : ordered) {
+            try {
+                upsertChunk(List.of(row));
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("Error storing incident " + row.incident.getIncidentId(), e, row.index);
+            }
+        }
+    }
+    
+    /**
+     * Writes a chunk of incidents, folding repeats of open incidents, plus
+     * the rollup deltas this causes, in one transaction.
+     * <p>
+     * An incident whose fingerprint (see {@link IncidentFingerprints}) matches
+     * an OPEN or INVESTIGATING incident under another id is a new occurrence
+     * of it: the original row's occurrence_count, last_seen_at and metadata
+     * are updated and the new id is recorded in merged_incident_ids, so later
+     * updates under that id land on the original too. Everything else is
+     * upserted as its own row. Only ids seen for the first time are folded:
+     * a stored incident keeps its row and the fingerprint it was first stored
+     * with, until an update with a failed analysis releases it. The rows involved are locked first, so the fold decisions and
+     * rollup deltas are made against their current state. Once committed,
+     * the rows written are announced to dashboard streams.
+     */
+    private void upsertChunk(List<PendingIncident> chunk) {
+        Map<String, String> fingerprints = new HashMap<>();
+        for (PendingIncident row : chunk) {
+            fingerprints.put(row.incident.getIncidentId(), IncidentFingerprints.fingerprint(row.incident));
+        }
+        String[] incidentIds = fingerprints.keySet().stream().sorted().toArray(String[]::new);
+        String[] openFingerprints = fingerprints.values().stream().filter(Objects::nonNull).distinct().toArray(String[]::new);
+        
+        List<String> written = transactionTemplate.execute(status -> {
+            // An archived incident emitted again is updated in the hot table like any
+            // other, instead of becoming a second copy that the rollups count again
+            int restored = jdbcTemplate.update(IncidentArchivalService.RESTORE, incidentIds, incidentIds);
+            if (restored > 0) {
+                log.info("Restored {} archived incidents that were emitted again", restored);
+            }
+            
+            // Served by the primary key, the merged_incident_ids GIN index and the
+            // unique partial index on open fingerprints
+            List<StoredIncident> stored = jdbcTemplate.query(
+                "SELECT incident_id, fingerprint, merged_incident_ids, "
+                    + IncidentRollupService.STATE_COLUMNS + """
+                
+                FROM incidents
+                WHERE incident_id = ANY(?)
+                   OR merged_incident_ids && ?::TEXT[]
+                   OR (fingerprint = ANY(?) AND status IN ('OPEN', 'INVESTIGATING'))
+                ORDER BY incident_id
+                FOR UPDATE
+                """,
+                (rs, rowNum) -> new StoredIncident(
+                    rs.getString("incident_id"),
+                    rs.getString("fingerprint"),
+                    toList(rs.getArray("merged_incident_ids")),
+                    IncidentRollupService.IncidentState.map(rs, rowNum)),
+                incidentIds, incidentIds, openFingerprints);
+            
+            Map<String, StoredIncident> storedById = new HashMap<>();
+            Map<String, String> aliases = new HashMap<>();
+            Map<String, String> openByFingerprint = new HashMap<>();
+            for (StoredIncident row : stored) {
+                storedById.put(row.incidentId, row);
+                row.mergedIncidentIds.forEach(alias -> aliases.put(alias, row.incidentId));
+                if (row.fingerprint != null && isOpen(row.state.status())) {
+                    openByFingerprint.put(row.fingerprint, row.incidentId);
+                }
+            }
+            
+            List<PendingIncident> own = new ArrayList<>();
+            Map<String, String> ownFingerprints = new HashMap<>();
+            Map<String, Occurrences> folds = new LinkedHashMap<>();
+            List<PendingIncident> ordered = new ArrayList<>(chunk);
+            ordered.sort(Comparator.comparingInt(row -> row.index));
+            for (PendingIncident row : ordered) {
+                String incidentId = row.incident.getIncidentId();
+                String fingerprint = fingerprints.get(incidentId);
+                
+                String original = aliases.get(incidentId);
+                if (original != null) {
+                    // A later update of an occurrence that was already counted
+                    folds.computeIfAbsent(original, id -> new Occurrences()).add(row.incident, 0);
+                    continue;
+                }
+                
+                StoredIncident existing = storedById.get(incidentId);
+                String holder = fingerprint != null ? openByFingerprint.get(fingerprint) : null;
+                if (existing != null) {
+                    // Rows from before fingerprints were recorded get one, unless another open incident
+                    // holds it; a failed analysis releases it
+                    String pinned = IncidentFingerprints.analysisFailed(row.incident) ? null
+                        : existing.fingerprint != null ? existing.fingerprint
+                        : holder == null || holder.equals(incidentId) ? fingerprint : null;
+                    own.add(row);
+                    if (existing.fingerprint != null && pinned == null) {
+                        openByFingerprint.remove(existing.fingerprint, incidentId);
+                    }
+                    ownFingerprints.put(incidentId, pinned);
+                    if (existing.fingerprint == null && pinned != null && isOpen(existing.state.status())) {
+                        openByFingerprint.put(pinned, incidentId);
+                    }
+                    continue;
+                }
+                
+                if (holder != null && isOpen(statusOf(row.incident))) {
+                    folds.computeIfAbsent(holder, id -> new Occurrences()).add(row.incident, 1);
+                    continue;
+                }
+                
+                own.add(row);
+                ownFingerprints.put(incidentId, fingerprint);
+                if (fingerprint != null && isOpen(statusOf(row.incident))) {
+                    openByFingerprint.put(fingerprint, incidentId);
+                }
+            }
             
-            jdbcTemplate.update(sql,
-                incident.getIncidentId(),
-                incident.getSeverity() != null ? incident.getSeverity().name() : null,
-                incident.getStatus() != null ? incident.getStatus().name() : null,
-                incident.getDetectedAt(),
-                incident.getResolvedAt(),
-                incident.getClassification(),
-                incident.getAffectedComponents() != null ? 
-                    String.join(",", incident.getAffectedComponents()) : null,
-                incident.getRootCauseExplanation(),
-                incident.getRecommendedRemediations() != null ?
-                    String.join(";", incident.getRecommendedRemediations()) : null,
-                incident.getMetadata() != null ? 
-                    objectMapper.writeValueAsString(incident.getMetadata()) : "{}",
-                Instant.now()
-            );
+            if (!own.isEmpty()) {
+                List<Object> args = new ArrayList<>(own.size() * 13);
+                for (PendingIncident row : own) {
+                    args.addAll(upsertArgs(row.incident, ownFingerprints.get(row.incident.getIncidentId())));
+                }
+                jdbcTemplate.update(UPSERT_COLUMNS + String.join(",\n", Collections.nCopies(own.size(), UPSERT_ROW))
+                    + UPSERT_CONFLICT, args.toArray());
+            }
+            if (!folds.isEmpty()) {
+                List<Object[]> foldArgs = new ArrayList<>();
+                folds.forEach((original, occurrences) -> foldArgs.add(new Object[]{
+                    occurrences.count,
+                    Timestamp.from(occurrences.lastSeenAt),
+                    occurrences.severity,
+                    writeMetadata(occurrences.metadata),
+                    occurrences.mergedIncidentIds.toArray(new String[0]),
+                    original}));
+                jdbcTemplate.batchUpdate(FOLD_OCCURRENCE, foldArgs);
+                log.debug("Folded {} incident updates into {} open incidents", chunk.size() - own.size(), folds.size());
+            }
             
-            log.info("Stored incident: {}", incident.getIncidentId());
+            // Rows that were locked but not written cancel out of the deltas
+            Set<String> touched = new TreeSet<>(storedById.keySet());
+            own.forEach(row -> touched.add(row.incident.getIncidentId()));
+            List<IncidentRollupService.IncidentState> after = jdbcTemplate.query(
+                "SELECT " + IncidentRollupService.STATE_COLUMNS + " FROM incidents WHERE incident_id = ANY(?)",
+                IncidentRollupService.IncidentState::map, (Object) touched.toArray(new String[0]));
+            rollupService.applyDeltas(stored.stream().map(StoredIncident::state).toList(), after);
             
+            List<String> writtenIds = new ArrayList<>(folds.keySet());
+            own.forEach(row -> writtenIds.add(row.incident.getIncidentId()));
+            return writtenIds;
+        });
+        announce(written);
+    }
+    
+    /** Push the committed state of {@code incidentIds} to dashboard streams. */
+    private void announce(List<String> incidentIds) {
+        if (incidentIds == null || incidentIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<Incident> incidents = jdbcTemplate.query("""
+                SELECT incident_id, severity, status, detected_at, resolved_at, classification,
+                       affected_components, root_cause_explanation, recommended_remediations, metadata
+                FROM incidents
+                WHERE incident_id = ANY(?)
+                """, this::mapIncident, (Object) incidentIds.toArray(new String[0]));
+            pushService.announce(incidents);
         } catch (Exception e) {
-            log.error("Error storing incident", e);
+            // The incidents are stored; only the dashboard update is lost
+            log.warn("Could not announce {} stored incidents: {}", incidentIds.size(), e.getMessage());
+        }
+    }
+    
+    private Incident mapIncident(ResultSet rs, int rowNum) throws SQLException {
+        Incident incident = new Incident();
+        incident.setIncidentId(rs.getString("incident_id"));
+        String severity = rs.getString("severity");
+        incident.setSeverity(severity != null ? IncidentSeverity.valueOf(severity) : null);
+        String status = rs.getString("status");
+        incident.setStatus(status != null ? IncidentStatus.valueOf(status) : null);
+        Timestamp detectedAt = rs.getTimestamp("detected_at");
+        incident.setDetectedAt(detectedAt != null ? detectedAt.toInstant() : null);
+        Timestamp resolvedAt = rs.getTimestamp("resolved_at");
+        incident.setResolvedAt(resolvedAt != null ? resolvedAt.toInstant() : null);
+        incident.setClassification(rs.getString("classification"));
+        incident.setAffectedComponents(toList(rs.getArray("affected_components")));
+        incident.setRootCauseExplanation(rs.getString("root_cause_explanation"));
+        incident.setRecommendedRemediations(toList(rs.getArray("recommended_remediations")));
+        incident.setMetadata(parseMetadata(rs.getString("metadata")));
+        return incident;
+    }
+    
+    private static boolean isOpen(String status) {
+        return status == null || "OPEN".equals(status) || "INVESTIGATING".equals(status);
+    }
+    
+    private static String statusOf(Incident incident) {
+        return incident.getStatus() != null ? incident.getStatus().name() : null;
+    }
+    
+    /** An incident row as locked before a chunk is written. */
+    private record StoredIncident(String incidentId, String fingerprint, List<String> mergedIncidentIds,
+                                  IncidentRollupService.IncidentState state) {
+    }
+    
+    /** Repeats folded into one open incident within a chunk. */
+    private static class Occurrences {
+        private int count;
+        private Instant lastSeenAt = Instant.EPOCH;
+        private String severity;
+        private final Map<String, Object> metadata = new HashMap<>();
+        private final Set<String> mergedIncidentIds = new LinkedHashSet<>();
+        
+        void add(Incident incident, int occurrences) {
+            count += occurrences;
+            Instant seenAt = incident.getDetectedAt() != null ? incident.getDetectedAt() : Instant.now();
+            if (seenAt.isAfter(lastSeenAt)) {
+                lastSeenAt = seenAt;
+            }
+            if (incident.getSeverity() != null
+                    && (severity == null || incident.getSeverity().ordinal() < IncidentSeverity.valueOf(severity).ordinal())) {
+                severity = incident.getSeverity().name();
+            }
+            if (incident.getMetadata() != null) {
+                metadata.putAll(incident.getMetadata());
+            }
+            mergedIncidentIds.add(incident.getIncidentId());
+        }
+    }
+    
+    private List<Object> upsertArgs(Incident incident, String fingerprint) {
+        return Arrays.asList(
+            incident.getIncidentId(),
+            incident.getSeverity() != null ? incident.getSeverity().name() : null,
+            incident.getStatus() != null ? incident.getStatus().name() : null,
+            incident.getDetectedAt() != null ? Timestamp.from(incident.getDetectedAt()) : null,
+            incident.getResolvedAt() != null ? Timestamp.from(incident.getResolvedAt()) : null,
+            incident.getClassification(),
+            incident.getAffectedComponents() != null ? 
+                incident.getAffectedComponents().toArray(new String[0]) : null,
+            incident.getRootCauseExplanation(),
+            incident.getRecommendedRemediations() != null ?
+                incident.getRecommendedRemediations().toArray(new String[0]) : null,
+            incident.getMetadata() != null ? 
+                writeMetadata(incident.getMetadata()) : "{}",
+            Timestamp.from(Instant.now()),
+            fingerprint,
+            Timestamp.from(incident.getDetectedAt() != null ? incident.getDetectedAt() : Instant.now())
+        );
+    }
+    
+    private String writeMetadata(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable incident metadata", e);
         }
     }
     
+    private record PendingIncident(int index, long timestamp, Incident incident) {
+    }
+    
     public List<Map<String, Object>> getSimilarIncidents(String classification) {
         String sql = """
             SELECT incident_id, severity, status, detected_at, classification,
@@ -89,19 +428,333 @@ public class IncidentStoreService {
                 incident.put("detected_at", rs.getTimestamp("detected_at"));
                 incident.put("classification", rs.getString("classification"));
                 incident.put("root_cause_explanation", rs.getString("root_cause_explanation"));
-                incident.put("recommended_remediations", rs.getString("recommended_remediations"));
+                incident.put("recommended_remediations", toList(rs.getArray("recommended_remediations")));
                 return incident;
             });
     }
     
+    /**
+     * A page of incidents matching {@code query}, newest first. Paging is
+     * keyset based on (detected_at, incident_id): the cursor holds the last
+     * row returned and the next page starts strictly after it, so deep pages
+     * cost the same as the first and concurrent inserts never shift rows
+     * between pages. Each filter has a composite index ending in the same
+     * sort key (see DatabaseConfig). Ranges reaching back past the archive
+     * horizon also read incidents_archive, flagged {@code archived}.
+     */
+    public Map<String, Object> queryIncidents(IncidentQuery query) {
+        StringBuilder filters = new StringBuilder("detected_at IS NOT NULL");
+        List<Object> filterArgs = new ArrayList<>();
+        
+        if (query.getStatus() != null) {
+            filters.append(" AND status = ?::incident_status");
+            filterArgs.add(query.getStatus().name());
+        }
+        if (query.getSeverity() != null) {
+            filters.append(" AND severity = ?::incident_severity");
+            filterArgs.add(query.getSeverity().name());
+        }
+        if (query.getClassification() != null) {
+            filters.append(" AND classification = ?");
+            filterArgs.add(query.getClassification());
+        }
+        if (query.getComponent() != null) {
+            filters.append(" AND affected_components @> ARRAY[?]::TEXT[]");
+            filterArgs.add(query.getComponent());
+        }
+        if (query.getFrom() != null) {
+            filters.append(" AND detected_at >= ?");
+            filterArgs.add(Timestamp.from(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            filters.append(" AND detected_at < ?");
+            filterArgs.add(Timestamp.from(query.getTo()));
+        }
+        if (query.getCursor() != null) {
+            PageCursor after = PageCursor.decode(query.getCursor());
+            filters.append(" AND (detected_at, incident_id) < (?, ?)");
+            filterArgs.add(Timestamp.from(after.detectedAt()));
+            filterArgs.add(after.incidentId());
+        }
+        
+        // One extra row tells whether another page exists
+        int limit = Math.max(1, Math.min(query.getLimit(), MAX_PAGE_SIZE));
+        String columns = "incident_id, severity, status, detected_at, resolved_at, "
+            + "classification, affected_components, occurrence_count, last_seen_at";
+        String pageFilter = " WHERE " + filters + " ORDER BY detected_at DESC, incident_id DESC LIMIT ?";
+        String hotPage = "SELECT " + columns + ", false AS archived FROM incidents" + pageFilter;
+        
+        String sql = hotPage;
+        List<Object> args = new ArrayList<>(filterArgs);
+        args.add(limit + 1);
+        if (readsArchive(query)) {
+            // Both tables serve the page from their own keyset index; the merge reads at most 2 * (limit + 1) rows
+            String archivePage = "SELECT " + columns + ", true AS archived FROM incidents_archive" + pageFilter;
+            sql = "SELECT * FROM ((" + hotPage + ") UNION ALL (" + archivePage + ")) combined"
+                + " ORDER BY detected_at DESC, incident_id DESC LIMIT ?";
+            args.addAll(filterArgs);
+            args.add(limit + 1);
+            args.add(limit + 1);
+        }
+        
+        List<Map<String, Object>> rows = jdbcTemplate.query(sql, this::mapIncidentSummary, args.toArray());
+        
+        Map<String, Object> page = new LinkedHashMap<>();
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            Map<String, Object> last = rows.get(limit - 1);
+            nextCursor = new PageCursor((Instant) last.get("detected_at"), (String) last.get("incident_id")).encode();
+        }
+        page.put("incidents", rows);
+        page.put("next_cursor", nextCursor);
+        return page;
+    }
+    
+    /**
+     * The archive only holds closed incidents detected before the archive
+     * horizon, so it is read only when the range starts before it and the
+     * status filter admits closed incidents.
+     */
+    private boolean readsArchive(IncidentQuery query) {
+        if (query.getStatus() == IncidentStatus.OPEN || query.getStatus() == IncidentStatus.INVESTIGATING) {
+            return false;
+        }
+        return query.getFrom() == null || query.getFrom().isBefore(archivalService.archiveHorizon());
+    }
+    
+    private Map<String, Object> mapIncidentSummary(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> incident = new LinkedHashMap<>();
+        incident.put("incident_id", rs.getString("incident_id"));
+        incident.put("severity", rs.getString("severity"));
+        incident.put("status", rs.getString("status"));
+        incident.put("detected_at", rs.getTimestamp("detected_at").toInstant());
+        Timestamp resolvedAt = rs.getTimestamp("resolved_at");
+        incident.put("resolved_at", resolvedAt != null ? resolvedAt.toInstant() : null);
+        incident.put("classification", rs.getString("classification"));
+        incident.put("affected_components", toList(rs.getArray("affected_components")));
+        incident.put("occurrence_count", rs.getInt("occurrence_count"));
+        Timestamp lastSeenAt = rs.getTimestamp("last_seen_at");
+        incident.put("last_seen_at", lastSeenAt != null ? lastSeenAt.toInstant() : null);
+        incident.put("archived", rs.getBoolean("archived"));
+        return incident;
+    }
+    
+    /** Position after the last row of a page, encoded as an opaque token. */
+    private record PageCursor(Instant detectedAt, String incidentId) {
+        
+        String encode() {
+            String raw = detectedAt + "|" + incidentId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new PageCursor(Instant.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+    
+    /**
+     * Incidents whose classification, root cause or remediations match
+     * {@code text} (web search syntax: quoted phrases, OR, -exclusion),
+     * best match first. The GIN index finds the matches and ranking reads
+     * only the stored vectors; highlighted snippets are the expensive part,
+     * so they are built for the rows of the returned page only. Paging is
+     * keyset based on (rank, incident_id).
+     */
+    public Map<String, Object> searchIncidents(String text, String cursor, int limit) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        
+        List<Object> args = new ArrayList<>();
+        args.add(text);
+        String after = "";
+        if (cursor != null) {
+            SearchCursor position = SearchCursor.decode(cursor);
+            after = "WHERE (rank, incident_id) < (?::real, ?)";
+            args.add(position.rank());
+            args.add(position.incidentId());
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        args.add(pageSize + 1);
+        
+        String sql = """
+            WITH search AS (
+                SELECT websearch_to_tsquery('english', ?) AS query
+            ),
+            matches AS (
+                SELECT i.incident_id, i.severity, i.status, i.detected_at, i.classification,
+                       i.root_cause_explanation, i.recommended_remediations,
+                       ts_rank(i.search_vector, search.query) AS rank
+                FROM incidents i, search
+                WHERE i.search_vector @@ search.query
+            ),
+            page AS (
+                SELECT * FROM matches
+                %s
+                ORDER BY rank DESC, incident_id DESC
+                LIMIT ?
+            )
+            SELECT page.incident_id, page.severity, page.status, page.detected_at,
+                   page.classification, page.rank,
+                   ts_headline('english', coalesce(page.root_cause_explanation, ''), search.query,
+                               'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=25, MinWords=8')
+                       AS root_cause_snippet,
+                   ts_headline('english', coalesce(incident_text_array_to_string(page.recommended_remediations), ''), search.query,
+                               'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=25, MinWords=8')
+                       AS remediation_snippet
+            FROM page, search
+            ORDER BY page.rank DESC, page.incident_id DESC
+            """.formatted(after);
+        
+        List<Map<String, Object>> rows = jdbcTemplate.query(sql,
+            (rs, rowNum) -> {
+                Map<String, Object> incident = new LinkedHashMap<>();
+                incident.put("incident_id", rs.getString("incident_id"));
+                incident.put("severity", rs.getString("severity"));
+                incident.put("status", rs.getString("status"));
+                Timestamp detectedAt = rs.getTimestamp("detected_at");
+                incident.put("detected_at", detectedAt != null ? detectedAt.toInstant() : null);
+                incident.put("classification", rs.getString("classification"));
+                incident.put("rank", rs.getFloat("rank"));
+                incident.put("root_cause_snippet", rs.getString("root_cause_snippet"));
+                incident.put("remediation_snippet", rs.getString("remediation_snippet"));
+                return incident;
+            },
+            args.toArray());
+        
+        Map<String, Object> page = new LinkedHashMap<>();
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Map<String, Object> last = rows.get(pageSize - 1);
+            nextCursor = new SearchCursor((Float) last.get("rank"), (String) last.get("incident_id")).encode();
+        }
+        page.put("incidents", rows);
+        page.put("next_cursor", nextCursor);
+        return page;
+    }
+    
+    /** Position after the last search result of a page. */
+    private record SearchCursor(float rank, String incidentId) {
+        
+        String encode() {
+            // Float.toString round-trips exactly, matching the real column on the next page
+            String raw = rank + "|" + incidentId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static SearchCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new SearchCursor(Float.parseFloat(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+    
+    /**
+     * Incidents resolved after the position ({@code since}, {@code afterId}),
+     * in (resolved_at, incident_id) order, with the analysis and resolution
+     * notes confirmed when they were closed. Consumers page by passing the
+     * resolved_at and incident_id of the last row they saw; the id breaks
+     * ties, since one resolve can close several incidents at the same instant.
+     * Archived incidents are included, so a consumer starting from scratch
+     * sees the full history.
+     * <p>
+     * resolved_at is stamped with the wall clock when the resolve runs, but
+     * the row only becomes visible when its transaction commits. Rows resolved
+     * within the last few seconds are held back, so a resolve that commits
+     * after a consumer has paged past its resolved_at is not skipped.
+     */
+    public List<Map<String, Object>> getResolvedIncidents(Instant since, String afterId, int limit) {
+        String sql = """
+            SELECT * FROM (
+                (SELECT incident_id, severity, classification, affected_components,
+                        root_cause_explanation, recommended_remediations, metadata,
+                        resolution_notes, resolved_at
+                 FROM incidents
+                 WHERE status = 'RESOLVED' AND (resolved_at, incident_id) > (?, ?)
+                   AND resolved_at < clock_timestamp() - INTERVAL '5 seconds'
+                 ORDER BY resolved_at, incident_id
+                 LIMIT ?)
+                UNION ALL
+                (SELECT incident_id, severity, classification, affected_components,
+                        root_cause_explanation, recommended_remediations, metadata,
+                        resolution_notes, resolved_at
+                 FROM incidents_archive
+                 WHERE status = 'RESOLVED' AND (resolved_at, incident_id) > (?, ?)
+                 ORDER BY resolved_at, incident_id
+                 LIMIT ?)
+            ) resolved
+            ORDER BY resolved_at, incident_id
+            LIMIT ?
+            """;
+        
+        return jdbcTemplate.query(sql,
+            (rs, rowNum) -> {
+                Map<String, Object> incident = new HashMap<>();
+                incident.put("incident_id", rs.getString("incident_id"));
+                incident.put("severity", rs.getString("severity"));
+                incident.put("classification", rs.getString("classification"));
+                incident.put("affected_components", toList(rs.getArray("affected_components")));
+                incident.put("root_cause_explanation", rs.getString("root_cause_explanation"));
+                incident.put("recommended_remediations", toList(rs.getArray("recommended_remediations")));
+                incident.put("metadata", parseMetadata(rs.getString("metadata")));
+                incident.put("resolution_notes", rs.getString("resolution_notes"));
+                incident.put("resolved_at", rs.getTimestamp("resolved_at").toInstant().toString());
+                return incident;
+            },
+            Timestamp.from(since), afterId, limit, Timestamp.from(since), afterId, limit, limit);
+    }
+    
+    private List<String> toList(java.sql.Array array) throws SQLException {
+        if (array == null) {
+            return List.of();
+        }
+        return Arrays.asList((String[]) array.getArray());
+    }
+    
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return json != null ? objectMapper.readValue(json, METADATA_TYPE) : Map.of();
+        } catch (Exception e) {
+            log.warn("Unreadable incident metadata: {}", json);
+            return Map.of();
+        }
+    }
+    
     public void resolveIncident(String incidentId, String resolution) {
         String sql = """
             UPDATE incidents
-            SET status = 'RESOLVED', resolved_at = NOW(), resolution_notes = ?
-            WHERE incident_id = ?
-            """;
+            SET status = 'RESOLVED', resolved_at = clock_timestamp(), resolution_notes = ?
+            WHERE incident_id = ? OR merged_incident_ids @> ARRAY[?]::TEXT[]
+            RETURNING incident_id, """ + IncidentRollupService.STATE_COLUMNS;
         
-        jdbcTemplate.update(sql, resolution, incidentId);
+        // An id that was folded into another incident resolves that incident
+        List<String> resolvedIds = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<IncidentRollupService.IncidentState> before = jdbcTemplate.query(
+                "SELECT " + IncidentRollupService.STATE_COLUMNS
+                    + " FROM incidents WHERE incident_id = ? OR merged_incident_ids @> ARRAY[?]::TEXT[] FOR UPDATE",
+                IncidentRollupService.IncidentState::map, incidentId, incidentId);
+            List<IncidentRollupService.IncidentState> after = jdbcTemplate.query(sql,
+                (rs, rowNum) -> {
+                    resolvedIds.add(rs.getString("incident_id"));
+                    return IncidentRollupService.IncidentState.map(rs, rowNum);
+                },
+                resolution, incidentId, incidentId);
+            rollupService.applyDeltas(before, after);
+        });
+        announce(resolvedIds);
         log.info("Resolved incident: {}", incidentId);
     }
 }
@@ -0,0 +1,132 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import com.selfhealing.analytics.common.model.IncidentStatus;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The keyset list queries are served by the composite
+ * idx_incidents_*_detected_at indexes: each page, first or deep, is one
+ * index range scan in sort order with no sort step. The tables are seeded
+ * large enough that a sequential scan and sort would win if an index did
+ * not fit the query.
+ */
+class IncidentListQueryPlanTest extends PostgresIncidentStoreTest {
+    
+    @BeforeAll
+    static void seedIncidents() {
+        jdbcTemplate.execute("TRUNCATE incidents, incidents_archive, incident_rollups_daily");
+        // 50,000 incidents over the last 20 days, in detection order. As in production, most are
+        // resolved and few critical, so each filter is selective; with a filter matching a large
+        // share of rows, walking idx_incidents_detected_at_id and filtering is the cheaper plan
+        jdbcTemplate.execute("""
+            INSERT INTO incidents (incident_id, severity, status, detected_at, classification,
+                                   affected_components, last_seen_at)
+            SELECT 'hot-' || g,
+                   CASE WHEN g % 50 = 3 THEN 'CRITICAL'
+                        ELSE (ARRAY['HIGH', 'MEDIUM', 'LOW'])[1 + g % 3] END::incident_severity,
+                   CASE WHEN g % 50 = 0 THEN 'OPEN'
+                        WHEN g % 50 = 1 THEN 'INVESTIGATING'
+                        WHEN g % 10 = 2 THEN 'FALSE_POSITIVE'
+                        ELSE 'RESOLVED' END::incident_status,
+                   NOW() - g * INTERVAL '34 seconds',
+                   'CLASS_' || g % 50,
+                   ARRAY['table_' || g % 50],
+                   NOW() - g * INTERVAL '34 seconds'
+            FROM generate_series(1, 50000) g
+            """);
+        // 20,000 incidents closed and archived long ago
+        jdbcTemplate.execute("""
+            INSERT INTO incidents_archive (incident_id, severity, status, detected_at, resolved_at,
+                                           classification, affected_components, last_seen_at)
+            SELECT 'archived-' || g,
+                   (ARRAY['CRITICAL', 'HIGH', 'MEDIUM', 'LOW'])[1 + g % 4]::incident_severity,
+                   'RESOLVED',
+                   NOW() - INTERVAL '40 days' - g * INTERVAL '100 seconds',
+                   NOW() - INTERVAL '40 days' - g * INTERVAL '100 seconds' + INTERVAL '1 hour',
+                   'CLASS_' || g % 50,
+                   ARRAY['table_' || g % 50],
+                   NOW() - INTERVAL '40 days' - g * INTERVAL '100 seconds'
+            FROM generate_series(1, 20000) g
+            """);
+        jdbcTemplate.execute("ANALYZE incidents");
+        jdbcTemplate.execute("ANALYZE incidents_archive");
+    }
+    
+    @Test
+    void unfilteredPagesReadTheDetectedAtIndex() {
+        IncidentQuery query = recent();
+        assertPagesUse(query, "idx_incidents_detected_at_id");
+    }
+    
+    @Test
+    void statusPagesReadTheStatusIndex() {
+        IncidentQuery query = recent();
+        query.setStatus(IncidentStatus.OPEN);
+        assertPagesUse(query, "idx_incidents_status_detected_at");
+    }
+    
+    @Test
+    void severityPagesReadTheSeverityIndex() {
+        IncidentQuery query = recent();
+        query.setSeverity(IncidentSeverity.CRITICAL);
+        assertPagesUse(query, "idx_incidents_severity_detected_at");
+    }
+    
+    @Test
+    void classificationPagesReadTheClassificationIndex() {
+        IncidentQuery query = recent();
+        query.setClassification("CLASS_3");
+        assertPagesUse(query, "idx_incidents_classification_detected_at");
+    }
+    
+    @Test
+    void rangesPastTheArchiveHorizonReadBothKeysetIndexes() {
+        IncidentQuery query = new IncidentQuery();
+        String plan = explain(query);
+        assertThat(plan).contains("using idx_incidents_detected_at_id", "using idx_incidents_archive_detected_at_id");
+        
+        query.setClassification("CLASS_3");
+        plan = explain(query);
+        assertThat(plan).contains("using idx_incidents_classification_detected_at",
+            "using idx_incidents_archive_classification_detected_at");
+    }
+    
+    /** A range that starts after the archive horizon, so only the hot table is read. */
+    private static IncidentQuery recent() {
+        IncidentQuery query = new IncidentQuery();
+        query.setFrom(Instant.now().minus(Duration.ofDays(10)));
+        return query;
+    }
+    
+    /** The first page and a deep page are both a range scan of {@code index} that needs no sort. */
+    private static void assertPagesUse(IncidentQuery query, String index) {
+        String firstPage = explain(query);
+        assertThat(firstPage).contains("using " + index).doesNotContain("Seq Scan", "Sort");
+        
+        // Walk a few pages in, so the cursor condition is part of the plan
+        for (int page = 0; page < 5; page++) {
+            Map<String, Object> result = storeService.queryIncidents(query);
+            query.setCursor((String) result.get("next_cursor"));
+        }
+        assertThat(query.getCursor()).isNotNull();
+        String deepPage = explain(query);
+        assertThat(deepPage).contains("using " + index).doesNotContain("Seq Scan", "Sort");
+    }
+    
+    /** EXPLAIN of the exact statement and arguments the store runs for {@code query}. */
+    private static String explain(IncidentQuery query) {
+        storeService.queryIncidents(query);
+        String sql = jdbcTemplate.lastSql;
+        Object[] args = jdbcTemplate.lastArgs;
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+}
@@ -0,0 +1,321 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import com.selfhealing.analytics.common.model.Incident;
+import com.selfhealing.analytics.common.model.IncidentSeverity;
+import com.selfhealing.analytics.common.model.IncidentStatus;
+import com.selfhealing.analytics.incidentstore.model.IncidentQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Write paths of the store: batch coalescing, array columns, folding of
+ * repeats by fingerprint, terminal statuses and the rollup deltas every
+ * write applies.
+ */
+class IncidentStoreWriteTest extends PostgresIncidentStoreTest {
+    
+    private static final Instant DETECTED_AT = Instant.parse("2026-10-01T10:00:00Z");
+    
+    @BeforeEach
+    void clearTables() {
+        jdbcTemplate.execute("TRUNCATE incidents, incidents_archive, incident_rollups_daily");
+    }
+    
+    @Test
+    void keepsTheLatestRecordOfAnIncidentWithinABatch() throws Exception {
+        Incident later = incident("inc-1", "DATA_FRESHNESS", "raw_events", "ROW_COUNT_ANOMALY");
+        Incident earlier = incident("inc-1", "UNCLASSIFIED", "raw_events", "ROW_COUNT_ANOMALY");
+        
+        // Delivered out of order: the record timestamp decides, not the position in the batch
+        store(new Incident[]{later, earlier}, new long[]{2_000L, 1_000L});
+        
+        assertThat(countIncidents()).isEqualTo(1);
+        assertThat(column("inc-1", "classification")).isEqualTo("DATA_FRESHNESS");
+        assertThat(openedCount("DATA_FRESHNESS", "HIGH")).isEqualTo(1);
+        assertThat(openedCount("UNCLASSIFIED", "HIGH")).isZero();
+    }
+    
+    @Test
+    void storesComponentsAndRemediationsAsArrays() throws Exception {
+        Incident incident = incident("inc-1", "SCHEMA_CHANGE", "raw_events", "SCHEMA_DRIFT");
+        incident.setAffectedComponents(List.of("raw_events", "analytics_daily_revenue"));
+        incident.setRecommendedRemediations(List.of("Pause ingestion; notify the producer", "Backfill the gap"));
+        store(incident);
+        
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT cardinality(recommended_remediations) FROM incidents WHERE incident_id = 'inc-1'", Integer.class))
+            .isEqualTo(2);
+        
+        IncidentQuery query = new IncidentQuery();
+        query.setComponent("analytics_daily_revenue");
+        List<Map<String, Object>> page = incidents(storeService.queryIncidents(query));
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0).get("affected_components")).isEqualTo(List.of("raw_events", "analytics_daily_revenue"));
+    }
+    
+    @Test
+    void foldsRepeatsOfAnOpenIncidentIntoIt() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        Incident repeat = incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE");
+        repeat.setDetectedAt(DETECTED_AT.plusSeconds(600));
+        repeat.setSeverity(IncidentSeverity.CRITICAL);
+        store(repeat);
+        
+        assertThat(countIncidents()).isEqualTo(1);
+        assertThat(occurrenceCount("inc-1")).isEqualTo(2);
+        assertThat(column("inc-1", "severity")).isEqualTo("CRITICAL");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT last_seen_at FROM incidents WHERE incident_id = 'inc-1'", Timestamp.class).toInstant())
+            .isEqualTo(DETECTED_AT.plusSeconds(600));
+        assertThat(jdbcTemplate.queryForList(
+            "SELECT unnest(merged_incident_ids) FROM incidents WHERE incident_id = 'inc-1'", String.class))
+            .containsExactly("inc-2");
+        
+        // A later update under the folded id lands on the original without counting again
+        store(repeat);
+        assertThat(countIncidents()).isEqualTo(1);
+        assertThat(occurrenceCount("inc-1")).isEqualTo(2);
+        
+        // The repeat raised the severity, which moves the one opening to the new bucket
+        assertThat(openedCount("NULL_SPIKE", "HIGH")).isZero();
+        assertThat(openedCount("NULL_SPIKE", "CRITICAL")).isEqualTo(1);
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void keepsTheFingerprintAnIncidentWasFirstStoredWith() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        String fingerprint = column("inc-1", "fingerprint");
+        
+        // The complete analysis changes the classification and the primary check; the identity stays
+        store(incident("inc-1", "UPSTREAM_OUTAGE", "raw_events", "ROW_COUNT_ANOMALY"));
+        assertThat(column("inc-1", "fingerprint")).isEqualTo(fingerprint);
+        
+        store(incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        assertThat(countIncidents()).isEqualTo(1);
+        assertThat(occurrenceCount("inc-1")).isEqualTo(2);
+    }
+    
+    @Test
+    void startsANewIncidentOnceTheOriginalsAnalysisFailed() throws Exception {
+        Incident provisional = incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE");
+        provisional.setMetadata(Map.of("table_name", "raw_events", "primary_check_type", "NULL_RATE",
+            "analysis_state", "PROVISIONAL"));
+        store(provisional);
+        Incident failed = incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE");
+        failed.setMetadata(Map.of("table_name", "raw_events", "primary_check_type", "NULL_RATE",
+            "analysis_state", "FAILED", "analysis_error", "Provider timed out"));
+        store(failed);
+        
+        // The dead-lettered checks, replayed under a new id
+        store(incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        
+        assertThat(countIncidents()).isEqualTo(2);
+        assertThat(column("inc-1", "status")).isEqualTo("OPEN");
+        assertThat(column("inc-1", "fingerprint")).isNull();
+        assertThat(occurrenceCount("inc-1")).isEqualTo(1);
+        assertThat(column("inc-2", "fingerprint")).isNotNull();
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void startsANewIncidentOnceTheOriginalIsResolved() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        storeService.resolveIncident("inc-1", "Fixed the producer");
+        store(incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        
+        assertThat(countIncidents()).isEqualTo(2);
+        assertThat(column("inc-1", "status")).isEqualTo("RESOLVED");
+        assertThat(column("inc-2", "status")).isEqualTo("OPEN");
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void resolvingAFoldedIdResolvesTheOriginal() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        store(incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        
+        storeService.resolveIncident("inc-2", "Duplicate of inc-1");
+        
+        assertThat(column("inc-1", "status")).isEqualTo("RESOLVED");
+        assertThat(column("inc-1", "resolution_notes")).isEqualTo("Duplicate of inc-1");
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void neverReopensAResolvedIncident() throws Exception {
+        Incident incident = incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE");
+        store(incident);
+        storeService.resolveIncident("inc-1", "Fixed the producer");
+        String resolvedAt = column("inc-1", "resolved_at");
+        
+        store(incident);
+        
+        assertThat(column("inc-1", "status")).isEqualTo("RESOLVED");
+        assertThat(column("inc-1", "resolved_at")).isEqualTo(resolvedAt);
+        assertThat(rollup("NULL_SPIKE", "HIGH", "resolved_count")).isEqualTo(1);
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void leavesAResolvedIncidentUnchangedByLaterFolds() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        Incident repeat = incident("inc-2", "NULL_SPIKE", "raw_events", "NULL_RATE");
+        store(repeat);
+        storeService.resolveIncident("inc-1", "Fixed the producer");
+        String resolved = jdbcTemplate.queryForObject(
+            "SELECT row(incidents.*)::text FROM incidents WHERE incident_id = 'inc-1'", String.class);
+        
+        // The engine folded a downstream symptom before it saw the resolve, and re-emits the root
+        Incident folded = incident("inc-1", "UPSTREAM_OUTAGE", "raw_events", "NULL_RATE");
+        folded.setSeverity(IncidentSeverity.CRITICAL);
+        folded.setAffectedComponents(List.of("raw_events", "analytics_daily_revenue"));
+        folded.setMetadata(Map.of("table_name", "raw_events", "primary_check_type", "NULL_RATE",
+            "merged_tables", List.of("analytics_daily_revenue")));
+        repeat.setSeverity(IncidentSeverity.CRITICAL);
+        repeat.setDetectedAt(DETECTED_AT.plusSeconds(600));
+        store(folded, repeat);
+        
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT row(incidents.*)::text FROM incidents WHERE incident_id = 'inc-1'", String.class))
+            .isEqualTo(resolved);
+        assertThat(countIncidents()).isEqualTo(1);
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void movesRollupsWhenAnIncidentIsReclassifiedAndResolved() throws Exception {
+        store(incident("inc-1", "UNCLASSIFIED", "raw_events", "ROW_COUNT_ANOMALY"));
+        assertThat(openedCount("UNCLASSIFIED", "HIGH")).isEqualTo(1);
+        
+        store(incident("inc-1", "DATA_FRESHNESS", "raw_events", "ROW_COUNT_ANOMALY"));
+        assertThat(openedCount("UNCLASSIFIED", "HIGH")).isZero();
+        assertThat(openedCount("DATA_FRESHNESS", "HIGH")).isEqualTo(1);
+        
+        Incident reprioritized = incident("inc-1", "DATA_FRESHNESS", "raw_events", "ROW_COUNT_ANOMALY");
+        reprioritized.setSeverity(IncidentSeverity.LOW);
+        store(reprioritized);
+        assertThat(openedCount("DATA_FRESHNESS", "HIGH")).isZero();
+        assertThat(openedCount("DATA_FRESHNESS", "LOW")).isEqualTo(1);
+        
+        storeService.resolveIncident("inc-1", "Upstream job restarted");
+        assertThat(rollup("DATA_FRESHNESS", "LOW", "resolved_count")).isEqualTo(1);
+        assertThat(rollup("DATA_FRESHNESS", "LOW", "mttr_count")).isEqualTo(1);
+        
+        // Resolving again moves the resolution rather than counting it twice
+        storeService.resolveIncident("inc-1", "Upstream job restarted again");
+        assertThat(rollup("DATA_FRESHNESS", "LOW", "resolved_count")).isEqualTo(1);
+        assertRollupsMatchIncidents();
+    }
+    
+    @Test
+    void resolvedFeedHoldsBackResolvesUntilTheyHaveSettled() throws Exception {
+        store(incident("inc-1", "NULL_SPIKE", "raw_events", "NULL_RATE"));
+        storeService.resolveIncident("inc-1", "Fixed the producer");
+        
+        // A resolve committing late may carry an earlier resolved_at than rows a consumer has paged past
+        assertThat(storeService.getResolvedIncidents(Instant.EPOCH, "", 10)).isEmpty();
+        
+        jdbcTemplate.update("UPDATE incidents SET resolved_at = resolved_at - INTERVAL '10 seconds'");
+        assertThat(storeService.getResolvedIncidents(Instant.EPOCH, "", 10))
+            .extracting(incident -> incident.get("incident_id"))
+            .containsExactly("inc-1");
+    }
+    
+    private static Incident incident(String incidentId, String classification, String tableName, String primaryCheckType) {
+        Incident incident = new Incident();
+        incident.setIncidentId(incidentId);
+        incident.setSeverity(IncidentSeverity.HIGH);
+        incident.setStatus(IncidentStatus.OPEN);
+        incident.setDetectedAt(DETECTED_AT);
+        incident.setClassification(classification);
+        incident.setAffectedComponents(List.of(tableName));
+        incident.setRootCauseExplanation("Check failed on " + tableName);
+        incident.setRecommendedRemediations(List.of("Inspect " + tableName));
+        incident.setMetadata(Map.of("table_name", tableName, "primary_check_type", primaryCheckType));
+        return incident;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> incidents(Map<String, Object> page) {
+        return (List<Map<String, Object>>) page.get("incidents");
+    }
+    
+    private static int countIncidents() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM incidents", Integer.class);
+    }
+    
+    private static String column(String incidentId, String column) {
+        return jdbcTemplate.queryForObject(
+            "SELECT " + column + "::text FROM incidents WHERE incident_id = ?", String.class, incidentId);
+    }
+    
+    private static int occurrenceCount(String incidentId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT occurrence_count FROM incidents WHERE incident_id = ?", Integer.class, incidentId);
+    }
+    
+    private static long openedCount(String classification, String severity) {
+        return rollup(classification, severity, "opened_count");
+    }
+    
+    private static long rollup(String classification, String severity, String column) {
+        return jdbcTemplate.queryForObject(
+            "SELECT coalesce(sum(" + column + "), 0) FROM incident_rollups_daily WHERE classification = ? AND severity = ?",
+            Long.class, classification, severity);
+    }
+    
+    /**
+     * The incrementally maintained rollups equal a recount of the incidents,
+     * as DatabaseConfig backfills them. Times to resolve are compared with a
+     * tolerance: the store computes them in milliseconds, Postgres in microseconds.
+     */
+    private static void assertRollupsMatchIncidents() {
+        List<Map<String, Object>> maintained = jdbcTemplate.queryForList("""
+            SELECT day, classification, severity, opened_count, resolved_count, mttr_count
+            FROM incident_rollups_daily
+            WHERE opened_count <> 0 OR resolved_count <> 0 OR mttr_count <> 0
+            ORDER BY day, classification, severity
+            """);
+        List<Map<String, Object>> recounted = jdbcTemplate.queryForList("""
+            SELECT day, classification, severity,
+                   SUM(opened)::bigint AS opened_count, SUM(resolved)::bigint AS resolved_count,
+                   SUM(resolved)::bigint AS mttr_count
+            FROM (
+                SELECT (detected_at AT TIME ZONE 'UTC')::date AS day,
+                       coalesce(classification, 'UNCLASSIFIED') AS classification,
+                       coalesce(severity::text, 'UNKNOWN') AS severity,
+                       1 AS opened, 0 AS resolved, 0::double precision AS mttr_seconds
+                FROM incidents
+                WHERE detected_at IS NOT NULL AND status IS DISTINCT FROM 'FALSE_POSITIVE'
+                UNION ALL
+                SELECT (resolved_at AT TIME ZONE 'UTC')::date,
+                       coalesce(classification, 'UNCLASSIFIED'),
+                       coalesce(severity::text, 'UNKNOWN'),
+                       0, 1, extract(epoch FROM resolved_at - detected_at)::double precision
+                FROM incidents
+                WHERE detected_at IS NOT NULL AND resolved_at IS NOT NULL AND status = 'RESOLVED'
+            ) contributions
+            GROUP BY day, classification, severity
+            ORDER BY day, classification, severity
+            """);
+        assertThat(maintained).isEqualTo(recounted);
+        
+        double maintainedMttr = jdbcTemplate.queryForObject(
+            "SELECT coalesce(sum(mttr_seconds_sum), 0) FROM incident_rollups_daily", Double.class);
+        double recountedMttr = jdbcTemplate.queryForObject("""
+            SELECT coalesce(sum(extract(epoch FROM resolved_at - detected_at)), 0)::double precision
+            FROM incidents
+            WHERE detected_at IS NOT NULL AND resolved_at IS NOT NULL AND status = 'RESOLVED'
+            """, Double.class);
+        assertThat(maintainedMttr).isCloseTo(recountedMttr, within(0.01));
+    }
+}
@@ -0,0 +1,98 @@
+package com.selfhealing.analytics.incidentstore.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.selfhealing.analytics.common.model.Incident;
+import com.selfhealing.analytics.incidentstore.config.DatabaseConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs the store against a real Postgres with the schema DatabaseConfig
+ * creates. The services are wired by hand, without Kafka; pushes to
+ * dashboards are disabled. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+abstract class PostgresIncidentStoreTest {
+    
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    static RecordingJdbcTemplate jdbcTemplate;
+    static ObjectMapper objectMapper;
+    static IncidentRollupService rollupService;
+    static IncidentStoreService storeService;
+    
+    private long offset;
+    
+    @BeforeAll
+    static void createStore() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new RecordingJdbcTemplate(dataSource);
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        
+        new DatabaseConfig(jdbcTemplate).run();
+        
+        rollupService = new IncidentRollupService(jdbcTemplate);
+        IncidentArchivalService archivalService = new IncidentArchivalService(jdbcTemplate);
+        ReflectionTestUtils.setField(archivalService, "afterDays", 30);
+        IncidentPushService pushService = new IncidentPushService(objectMapper, null);
+        storeService = new IncidentStoreService(jdbcTemplate, objectMapper,
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+            rollupService, archivalService, pushService);
+    }
+    
+    /** Deliver incidents to the store as one Kafka batch, with record timestamps in list order. */
+    void store(Incident... incidents) throws Exception {
+        long[] timestamps = new long[incidents.length];
+        for (int i = 0; i < incidents.length; i++) {
+            timestamps[i] = 1_000L * (offset + i);
+        }
+        store(incidents, timestamps);
+    }
+    
+    void store(Incident[] incidents, long[] timestamps) throws Exception {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < incidents.length; i++) {
+            String value = objectMapper.writeValueAsString(incidents[i]);
+            records.add(new ConsumerRecord<>("incidents", 0, offset++, timestamps[i], TimestampType.CREATE_TIME,
+                -1, value.length(), incidents[i].getIncidentId(), value, new RecordHeaders(), Optional.empty()));
+        }
+        storeService.storeIncidents(records);
+    }
+    
+    /** JdbcTemplate that remembers the last list query, so tests can EXPLAIN exactly what the store ran. */
+    static class RecordingJdbcTemplate extends JdbcTemplate {
+        
+        String lastSql;
+        Object[] lastArgs;
+        
+        RecordingJdbcTemplate(DriverManagerDataSource dataSource) {
+            super(dataSource);
+        }
+        
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            lastSql = sql;
+            lastArgs = args;
+            return super.query(sql, rowMapper, args);
+        }
+    }
+}
@@ -29,4 +29,9 @@ public class LineageController {
     public ResponseEntity<List<Map<String, Object>>> getImpactAnalysis(@PathVariable String tableName) {
         return ResponseEntity.ok(lineageService.getImpactAnalysis(tableName));
     }
+    
+    @GetMapping("/graph")
+    public ResponseEntity<Map<String, Object>> getLineageGraph() {
+        return ResponseEntity.ok(lineageService.getLineageGraph());
+    }
 }
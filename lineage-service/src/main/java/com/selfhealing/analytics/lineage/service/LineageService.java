@@ -108,4 +108,38 @@ public class LineageService implements CommandLineRunner {
                     ));
         }
     }
+    
+    /**
+     * The whole table/job graph as data-flow edges: table -> job for
+     * READS_FROM and job -> table for WRITES_TO. Small enough for consumers
+     * to cache and walk locally.
+     */
+    public Map<String, Object> getLineageGraph() {
+        try (Session session = neo4jDriver.session()) {
+            String nodesCypher = """
+                MATCH (n)
+                WHERE n:Table OR n:Job
+                RETURN labels(n)[0] as type, n.name as name
+                """;
+            String edgesCypher = """
+                MATCH (t:Table)<-[:READS_FROM]-(j:Job)
+                RETURN t.name as source, j.name as target
+                UNION
+                MATCH (j:Job)-[:WRITES_TO]->(t:Table)
+                RETURN j.name as source, t.name as target
+                """;
+            
+            List<Map<String, Object>> nodes = session.run(nodesCypher)
+                    .list(record -> Map.of(
+                        "type", record.get("type").asString(),
+                        "name", record.get("name").asString()
+                    ));
+            List<Map<String, Object>> edges = session.run(edgesCypher)
+                    .list(record -> Map.of(
+                        "source", record.get("source").asString(),
+                        "target", record.get("target").asString()
+                    ));
+            return Map.of("nodes", nodes, "edges", edges);
+        }
+    }
 }
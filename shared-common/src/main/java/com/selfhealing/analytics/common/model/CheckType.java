@@ -5,5 +5,6 @@ public enum CheckType {
     NULL_RATE,
     VALUE_DISTRIBUTION,
     SCHEMA_DRIFT,
-    MISSING_PARTITION
+    MISSING_PARTITION,
+    TYPE_MISMATCH
 }